@@ -0,0 +1,55 @@
+package game.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.model.Game;
+import game.model.LegacyReceiptRenderer;
+import game.model.Transaction;
+
+/**
+ * Rendering one receipt of 1, 10 and 100 lines, with ReceiptRenderer and with the
+ * String.format code it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ReceiptBenchmark {
+	@Param({ "1", "10", "100" })
+	public int items;
+
+	Transaction transaction;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		transaction = new Transaction(1234, System.currentTimeMillis());
+		for (int i = 0; i < items; i++) {
+			transaction.addGame(new Game(SyntheticData.title(i), "P", 1), 1, 200 + i);
+		}
+	}
+
+	@Benchmark
+	public String getReceipt() {
+		return transaction.getReceipt();
+	}
+
+	@Benchmark
+	public String getReceiptLegacy() {
+		return LegacyReceiptRenderer.render(transaction);
+	}
+}
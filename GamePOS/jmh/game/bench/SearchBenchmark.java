@@ -0,0 +1,80 @@
+package game.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.model.TitleSearchIndex;
+
+/**
+ * Title search at 1k, 100k and 1M titles: a narrow query, a word shared by a sixteenth of
+ * the catalog, a query too short for the index, and keeping the index up to date as a title is stocked
+ * and delisted, against rebuilding it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+	@Param({ "1000", "100000", "1000000" })
+	public int titles;
+
+	List<String> catalog;
+	TitleSearchIndex index;
+	String narrowQuery;
+	int added;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		catalog = new ArrayList<>(titles);
+		for (int i = 0; i < titles; i++) {
+			catalog.add(SyntheticData.title(i));
+		}
+		index = new TitleSearchIndex(catalog);
+		narrowQuery = SyntheticData.title(titles / 2).toUpperCase();
+	}
+
+	@Benchmark
+	public List<String> searchNarrow() {
+		return index.search(narrowQuery);
+	}
+
+	@Benchmark
+	public List<String> searchWord() {
+		return index.search("dragon ");
+	}
+
+	@Benchmark
+	public List<String> searchShort() {
+		return index.search("ni");
+	}
+
+	@Benchmark
+	public int addAndRemoveTitle() {
+		String title = "Restocked " + added++;
+		index.add(title);
+		index.remove(title);
+		return index.size();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public TitleSearchIndex rebuild() {
+		return new TitleSearchIndex(catalog);
+	}
+}
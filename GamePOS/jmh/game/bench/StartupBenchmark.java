@@ -0,0 +1,184 @@
+package game.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.model.Game;
+import game.model.Store;
+import game.model.Transaction;
+import game.persistence.StorePersistence;
+import game.persistence.TransactionJournal;
+
+/**
+ * Restoring a store with a million past sales: by replaying the whole journal, and from
+ * a snapshot with nothing left in the journal. Each start works on a fresh copy of the
+ * files, made before the clock starts, since closing the store rewrites them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+	private static final int TITLES = 1000;
+	private static final String JOURNAL = "journal.dat";
+	private static final String SNAPSHOT = "snapshot.dat";
+
+	@Param({ "1000000" })
+	public int transactions;
+
+	Path work;
+	Path catalog;
+	Path journalOnly;
+	Path withSnapshot;
+	Path scratch;
+	Store store;
+	StorePersistence persistence;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		work = Files.createTempDirectory("bench-startup");
+		catalog = work.resolve("inventory.txt");
+		SyntheticData.writeCatalog(catalog, TITLES, 1_000_000);
+
+		journalOnly = Files.createDirectory(work.resolve("journal-only"));
+		Store source = loadStore();
+		try (TransactionJournal journal = TransactionJournal.open(journalOnly.resolve(JOURNAL), source, 0)) {
+			recordSales(journal, source.getAllGames());
+		}
+
+		// Replaying the journal once leaves a snapshot and an empty journal tail. The first
+		// snapshot freezes the past days, so the one close() writes holds them as columns
+		withSnapshot = Files.createDirectory(work.resolve("with-snapshot"));
+		Files.copy(journalOnly.resolve(JOURNAL), withSnapshot.resolve(JOURNAL));
+		Store replayed = loadStore();
+		try (StorePersistence persistence = StorePersistence.open(replayed, withSnapshot.resolve(SNAPSHOT),
+				withSnapshot.resolve(JOURNAL), 60)) {
+			persistence.snapshot();
+		}
+		if (replayed.getTransactionHistory().size() != transactions) {
+			throw new IllegalStateException("Replay restored " + replayed.getTransactionHistory().size() + " sales");
+		}
+	}
+
+	/**
+	 * Writes the sales from several threads, so they share the journal's disk flushes.
+	 */
+	private void recordSales(TransactionJournal journal, List<Game> games) throws Exception {
+		int threads = 64;
+		long now = System.currentTimeMillis();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> done = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int first = t;
+				done.add(pool.submit(() -> {
+					Random random = new Random(first);
+					for (int i = first; i < transactions; i += threads) {
+						// Spread over the last 30 days, oldest first, so past days get frozen
+						long timestamp = now - TimeUnit.DAYS.toMillis(30) + i * (TimeUnit.DAYS.toMillis(30) / transactions);
+						Transaction sale = new Transaction(i + 1, timestamp);
+						int items = 1 + random.nextInt(3);
+						for (int item = 0; item < items; item++) {
+							sale.addGame(games.get(random.nextInt(games.size())), 1, 200);
+						}
+						journal.recordSale(sale);
+					}
+				}));
+			}
+			for (Future<?> future : done) {
+				future.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private Store loadStore() {
+		Store store = new Store();
+		store.loadInventoryFromFile(catalog.toString(), true);
+		return store;
+	}
+
+	@Setup(Level.Invocation)
+	public void prepareStart() throws IOException {
+		scratch = Files.createTempDirectory(work, "start");
+		for (Path from : List.of(journalOnly, withSnapshot)) {
+			Path to = Files.createDirectory(scratch.resolve(from.getFileName()));
+			try (Stream<Path> files = Files.list(from)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.copy(file, to.resolve(file.getFileName()), StandardCopyOption.COPY_ATTRIBUTES);
+				}
+			}
+		}
+		store = loadStore();
+	}
+
+	@TearDown(Level.Invocation)
+	public void finishStart() throws IOException {
+		// Both starts must restore every sale, or they are not doing the same work
+		int restored = store.getTransactionHistory().size();
+		if (restored != transactions) {
+			throw new IllegalStateException("Start restored " + restored + " of " + transactions + " sales");
+		}
+		persistence.close();
+		store.getReservations().close();
+		store = null;
+		deleteTree(scratch);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		deleteTree(work);
+	}
+
+	@Benchmark
+	public StorePersistence replayWholeJournal() throws IOException {
+		return start(journalOnly);
+	}
+
+	@Benchmark
+	public StorePersistence loadSnapshot() throws IOException {
+		return start(withSnapshot);
+	}
+
+	private StorePersistence start(Path from) throws IOException {
+		Path copy = scratch.resolve(from.getFileName());
+		persistence = StorePersistence.open(store, copy.resolve(SNAPSHOT), copy.resolve(JOURNAL), 60);
+		return persistence;
+	}
+
+	private static void deleteTree(Path root) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
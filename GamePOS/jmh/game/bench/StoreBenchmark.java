@@ -0,0 +1,125 @@
+package game.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.model.FormatBreakdown;
+import game.model.Game;
+import game.model.Store;
+
+/**
+ * The store's hot paths over synthetic catalogs and histories of two sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx2g")
+public class StoreBenchmark {
+
+	/**
+	 * A catalog on disk and a store loaded from it, with one sale per title so far today.
+	 */
+	@State(Scope.Benchmark)
+	public static class Catalog {
+		@Param({ "1000", "100000" })
+		public int titles;
+
+		Path file;
+		Store store;
+		List<Game> games;
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			file = Files.createTempFile("bench-inventory", ".txt");
+			SyntheticData.writeCatalog(file, titles, 1_000_000);
+			store = new Store();
+			store.loadInventoryFromFile(file.toString());
+			SyntheticData.fillHistory(store, titles, 5, 42);
+			games = store.getAllGames();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			store.getReservations().close();
+			Files.deleteIfExists(file);
+		}
+
+		Game randomGame() {
+			return games.get(ThreadLocalRandom.current().nextInt(games.size()));
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int loadInventoryFromFile(Catalog catalog) {
+		Store store = new Store();
+		store.loadInventoryFromFile(catalog.file.toString());
+		return store.getAllGames().size();
+	}
+
+	@Benchmark
+	public int getAvailableGamesAll(Catalog catalog) {
+		return catalog.store.getAvailableGames(null).size();
+	}
+
+	@Benchmark
+	public int getAvailableGamesByFormat(Catalog catalog) {
+		return catalog.store.getAvailableGames("P").size();
+	}
+
+	@Benchmark
+	public Game getGame(Catalog catalog) {
+		Game game = catalog.randomGame();
+		return catalog.store.getGame(game.getTitle(), game.getFormat());
+	}
+
+	@Benchmark
+	public long calculateDailyTotal(Catalog catalog) {
+		return catalog.store.calculateDailyTotal();
+	}
+
+	@Benchmark
+	public FormatBreakdown calculateDailySalesByFormat(Catalog catalog) {
+		return catalog.store.calculateDailySalesByFormat();
+	}
+
+	@Benchmark
+	public void rentAndReturn(Catalog catalog, Blackhole blackhole) {
+		rentAndReturnOnce(catalog, blackhole);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void rentAndReturnContended(Catalog catalog, Blackhole blackhole) {
+		rentAndReturnOnce(catalog, blackhole);
+	}
+
+	private static void rentAndReturnOnce(Catalog catalog, Blackhole blackhole) {
+		Game game = catalog.randomGame();
+		boolean rented = game.rentGame();
+		if (rented) {
+			game.returnGame();
+		}
+		blackhole.consume(rented);
+	}
+}
@@ -6,10 +6,21 @@
 package game.UI;
 
 
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
+import game.controllers.BackgroundTasks;
 import game.controllers.MainController;
+import game.metrics.Metrics;
+import game.model.Format;
+import game.model.InventoryWatcher;
 import game.model.Store;
+import game.persistence.StorePersistence;
+import game.replication.ReplicationNode;
+import game.service.PosHttpServer;
+import game.service.PosService;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -17,12 +28,59 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 public class MainApp extends Application {
+	private StorePersistence persistence;
+	private InventoryWatcher inventoryWatcher;
+	private ReplicationNode replication;
+	private PosService service;
+	private PosHttpServer http;
 
 	@Override
 	public void start(Stage primaryStage) throws Exception {
 
+	    // Timers are live over JMX; this also appends them to a file every few minutes
+	    Metrics.startLogging("metrics.log", Long.getLong("pos.metricsMinutes", 5));
+	    if (Files.exists(Paths.get("formats.txt"))) {
+	        Format.loadFromFile("formats.txt");
+	    }
 	    Store gameStore = new Store();
 	    gameStore.loadInventoryFromFile("game_inventory.txt");
+	    if (Files.exists(Paths.get("pricing.txt"))) {
+	        gameStore.getPricing().loadFromFile("pricing.txt");
+	    }
+	    // Restore earlier sessions on top of the inventory file, then journal new sales
+	    persistence = StorePersistence.open(gameStore,
+	            Paths.get("game_snapshot.dat"), Paths.get("game_journal.dat"), 15);
+	    // Pick up restocks made to the inventory file while the store is open
+	    if (Files.exists(Paths.get("game_inventory.txt"))) {
+	        inventoryWatcher = new InventoryWatcher(gameStore, Paths.get("game_inventory.txt"));
+	        inventoryWatcher.start();
+	    }
+
+	    // Share availability with other stores when started with -Dpos.node=<store id>
+	    String storeId = System.getProperty("pos.node");
+	    if (storeId != null) {
+	        replication = new ReplicationNode(storeId, gameStore);
+	        replication.listen(Integer.getInteger("pos.port", 0));
+	        for (String peer : System.getProperty("pos.peers", "").split(",")) {
+	            if (peer.isBlank()) {
+	                continue;
+	            }
+	            String[] hostPort = peer.trim().split(":");
+	            try {
+	                replication.connect(hostPort[0], Integer.parseInt(hostPort[1]));
+	            } catch (IOException | RuntimeException e) {
+	                System.err.println("Cannot connect to store " + peer + ": " + e.getMessage());
+	            }
+	        }
+	    }
+
+	    // Let scanners and kiosks check out against the same store when started with -Dpos.http=<port>
+	    Integer httpPort = Integer.getInteger("pos.http");
+	    if (httpPort != null) {
+	        service = new PosService(gameStore, Runtime.getRuntime().availableProcessors() * 4);
+	        http = new PosHttpServer(service, httpPort);
+	        http.start();
+	    }
 
 	    FXMLLoader loader = new FXMLLoader(getClass().getResource("/Main.fxml"));
 	    Parent root = loader.load();
@@ -45,6 +103,26 @@ public class MainApp extends Application {
 	    primaryStage.show();
 	}
 
+	@Override
+	public void stop() throws Exception {
+		// Let an accepted sale finish journaling before the final snapshot
+		BackgroundTasks.shutdown();
+		if (inventoryWatcher != null) {
+			inventoryWatcher.close();
+		}
+		if (http != null) {
+			http.close();
+			service.close();
+		}
+		if (replication != null) {
+			replication.close();
+		}
+		if (persistence != null) {
+			persistence.close();
+		}
+		Metrics.stopLogging("metrics.log");
+	}
+
 }
 
 
@@ -0,0 +1,381 @@
+package game.bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import game.metrics.LatencyHistogram;
+import game.metrics.Metrics;
+import game.model.Game;
+import game.model.Reservation;
+import game.model.Store;
+import game.model.TransactionNumbers;
+import game.persistence.StorePersistence;
+
+/**
+ * Drives a store from many simulated terminals at once, without the JavaFX window or a
+ * network, and reports throughput and latency percentiles for each kind of step. Each
+ * terminal runs its own cart: it browses, searches, adds games, checks out, cancels and
+ * returns what it rented earlier, as fast as the store lets it.
+ * <p>
+ * Runs are configured with system properties:
+ * <ul>
+ * <li>load.threads: simulated terminals (default: one per core)</li>
+ * <li>load.seconds, load.warmup: measured and warm-up seconds (default 30 and 5)</li>
+ * <li>load.catalog: an inventory file in the game_inventory.txt layout; otherwise
+ * load.titles (default 10000) synthetic titles with load.copies (default 20) each</li>
+ * <li>load.mix: step weights (default {@value WorkloadGenerator#DEFAULT_MIX})</li>
+ * <li>load.zipf: title popularity skew (default 1.0); load.seed: random seed (default 42)</li>
+ * <li>load.journal: a directory to journal sales to, to include the disk; otherwise in memory</li>
+ * <li>load.record: a file to record the generated steps to</li>
+ * <li>load.replay: a recording to replay instead of generating steps; with
+ * load.realtime=true the steps keep their recorded timing</li>
+ * </ul>
+ */
+public class LoadGenerator {
+	// Query results go here so the JIT cannot drop the lookups
+	private static volatile long sink;
+
+	private final Store store;
+	private volatile Stats stats = new Stats();
+	private volatile long measuredFrom = System.nanoTime();
+
+	/**
+	 * @param store The store to drive.
+	 */
+	public LoadGenerator(Store store) {
+		this.store = store;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int threads = Integer.getInteger("load.threads", Runtime.getRuntime().availableProcessors());
+		long seconds = Long.getLong("load.seconds", 30);
+		long warmup = Long.getLong("load.warmup", 5);
+		double exponent = Double.parseDouble(System.getProperty("load.zipf", "1.0"));
+		long seed = Long.getLong("load.seed", 42);
+		Map<WorkloadEvent.Kind, Integer> mix = WorkloadGenerator.parseMix(System.getProperty("load.mix", WorkloadGenerator.DEFAULT_MIX));
+		String record = System.getProperty("load.record");
+		String replay = System.getProperty("load.replay");
+
+		Store store = new Store();
+		String catalog = System.getProperty("load.catalog");
+		if (catalog != null) {
+			store.loadInventoryFromFile(catalog);
+		} else {
+			Path synthetic = Files.createTempFile("load-inventory", ".txt");
+			SyntheticData.writeCatalog(synthetic, Integer.getInteger("load.titles", 10000), Integer.getInteger("load.copies", 20));
+			store.loadInventoryFromFile(synthetic.toString());
+			Files.delete(synthetic);
+		}
+		if (store.getAllGames().isEmpty()) {
+			System.err.println("The catalog is empty");
+			return;
+		}
+		StorePersistence persistence = null;
+		String journalDir = System.getProperty("load.journal");
+		if (journalDir != null) {
+			Path dir = Files.createDirectories(Paths.get(journalDir));
+			persistence = StorePersistence.open(store, dir.resolve("load_snapshot.dat"), dir.resolve("load_journal.dat"), 15);
+		}
+
+		LoadGenerator generator = new LoadGenerator(store);
+		long runNanos;
+		if (replay != null) {
+			runNanos = generator.replay(Paths.get(replay), Boolean.getBoolean("load.realtime"), TimeUnit.SECONDS.toNanos(warmup));
+		} else {
+			List<WorkloadGenerator> generators = new ArrayList<>();
+			for (int worker = 0; worker < threads; worker++) {
+				generators.add(new WorkloadGenerator(worker, store.getAllGames(), mix, exponent, seed));
+			}
+			runNanos = generator.generate(generators, TimeUnit.SECONDS.toNanos(warmup), TimeUnit.SECONDS.toNanos(seconds),
+					record != null ? Paths.get(record) : null);
+		}
+		System.out.print(generator.report(runNanos));
+		System.out.println();
+		System.out.print(Metrics.dump());
+		if (persistence != null) {
+			persistence.close();
+		}
+		store.getReservations().close();
+	}
+
+	/**
+	 * Runs one terminal per generator for the warm-up and then the measured time.
+	 * 
+	 * @param generators The step source for each terminal.
+	 * @param warmupNanos How long to run before measuring.
+	 * @param measuredNanos How long to measure.
+	 * @param record A file to record every step to, or null.
+	 * @return The measured time in nanoseconds.
+	 * @throws IOException If the recording cannot be written.
+	 * @throws InterruptedException If interrupted while waiting for the terminals.
+	 */
+	public long generate(List<WorkloadGenerator> generators, long warmupNanos, long measuredNanos, Path record)
+			throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		long end = start + warmupNanos + measuredNanos;
+		List<Path> parts = new ArrayList<>();
+		List<Thread> workers = new ArrayList<>();
+		List<IOException> failures = new ArrayList<>();
+		for (int worker = 0; worker < generators.size(); worker++) {
+			WorkloadGenerator generator = generators.get(worker);
+			Path part = record != null ? Files.createTempFile("load-record-" + worker, ".tsv") : null;
+			parts.add(part);
+			workers.add(startWorker("load-" + worker, () -> {
+				Session session = new Session();
+				StringBuilder line = new StringBuilder();
+				try (BufferedWriter out = part != null ? Files.newBufferedWriter(part, StandardCharsets.UTF_8) : null) {
+					long now;
+					while ((now = System.nanoTime()) < end) {
+						WorkloadEvent event = generator.next(TimeUnit.NANOSECONDS.toMicros(now - start));
+						if (out != null) {
+							line.setLength(0);
+							event.appendTo(line);
+							out.append(line).append('\n');
+						}
+						session.run(event);
+					}
+				} catch (IOException e) {
+					synchronized (failures) {
+						failures.add(e);
+					}
+				} finally {
+					session.close();
+				}
+			}));
+		}
+		long measuredNanosTaken = awaitRun(workers, start, warmupNanos);
+		if (record != null) {
+			try (BufferedWriter out = Files.newBufferedWriter(record, StandardCharsets.UTF_8)) {
+				for (Path part : parts) {
+					try (BufferedReader in = Files.newBufferedReader(part, StandardCharsets.UTF_8)) {
+						in.transferTo(out);
+					}
+					Files.delete(part);
+				}
+			}
+		}
+		if (!failures.isEmpty()) {
+			throw failures.get(0);
+		}
+		return measuredNanosTaken;
+	}
+
+	/**
+	 * Replays a recording, one terminal per recorded worker, each taking its steps in order.
+	 * 
+	 * @param recording The recorded steps.
+	 * @param realtime Whether to wait until each step's recorded time, rather than run flat out.
+	 * @param warmupNanos How long to run before measuring.
+	 * @return The measured time in nanoseconds.
+	 * @throws IOException If the recording cannot be read.
+	 * @throws InterruptedException If interrupted while waiting for the terminals.
+	 */
+	public long replay(Path recording, boolean realtime, long warmupNanos) throws IOException, InterruptedException {
+		Map<Integer, List<WorkloadEvent>> streams = new TreeMap<>();
+		try (BufferedReader in = Files.newBufferedReader(recording, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!line.isBlank()) {
+					WorkloadEvent event = WorkloadEvent.parse(line);
+					streams.computeIfAbsent(event.getWorker(), worker -> new ArrayList<>()).add(event);
+				}
+			}
+		}
+		long start = System.nanoTime();
+		List<Thread> workers = new ArrayList<>();
+		for (Map.Entry<Integer, List<WorkloadEvent>> stream : streams.entrySet()) {
+			workers.add(startWorker("load-" + stream.getKey(), () -> {
+				Session session = new Session();
+				try {
+					for (WorkloadEvent event : stream.getValue()) {
+						if (realtime) {
+							long due = start + TimeUnit.MICROSECONDS.toNanos(event.getOffsetMicros());
+							long wait;
+							while ((wait = due - System.nanoTime()) > 0) {
+								LockSupport.parkNanos(wait);
+							}
+						}
+						session.run(event);
+					}
+				} finally {
+					session.close();
+				}
+			}));
+		}
+		return awaitRun(workers, start, warmupNanos);
+	}
+
+	/**
+	 * Starts measuring afresh once the warm-up is over, then waits for the terminals.
+	 * 
+	 * @return The measured time in nanoseconds.
+	 */
+	private long awaitRun(List<Thread> workers, long start, long warmupNanos) throws InterruptedException {
+		long warmupEnd = start + warmupNanos;
+		long wait;
+		while ((wait = warmupEnd - System.nanoTime()) > 0 && isAnyAlive(workers)) {
+			TimeUnit.NANOSECONDS.sleep(Math.min(wait, TimeUnit.MILLISECONDS.toNanos(50)));
+		}
+		if (warmupNanos > 0) {
+			stats = new Stats();
+			Metrics.reset();
+			measuredFrom = System.nanoTime();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return System.nanoTime() - measuredFrom;
+	}
+
+	private static boolean isAnyAlive(List<Thread> workers) {
+		for (Thread worker : workers) {
+			if (worker.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Thread startWorker(String name, Runnable work) {
+		Thread thread = new Thread(work, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * @param measuredNanos The measured time.
+	 * @return One line per kind of step, then the overall throughput.
+	 */
+	public String report(long measuredNanos) {
+		Stats measured = stats;
+		double seconds = Math.max(1, measuredNanos) / 1e9;
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("%-9s %10s %9s %11s %9s %9s %9s %9s %9s%n",
+				"step", "count", "refused", "per second", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+		long total = 0;
+		for (WorkloadEvent.Kind kind : WorkloadEvent.Kind.values()) {
+			LatencyHistogram histogram = measured.latency.get(kind);
+			long count = histogram.getCount();
+			total += count;
+			out.append(String.format("%-9s %10d %9d %11.0f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+					kind.name().toLowerCase(), count, measured.refused.get(kind).sum(), count / seconds,
+					histogram.getMean() / 1e3, histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+					histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3));
+		}
+		out.append(String.format("%d steps in %.1f s: %.0f steps/s, %.0f checkouts/s%n", total, seconds, total / seconds,
+				measured.latency.get(WorkloadEvent.Kind.CHECKOUT).getCount() / seconds));
+		return out.toString();
+	}
+
+	/**
+	 * The latencies and refusals of one measuring period.
+	 */
+	private static final class Stats {
+		private final Map<WorkloadEvent.Kind, LatencyHistogram> latency = new EnumMap<>(WorkloadEvent.Kind.class);
+		private final Map<WorkloadEvent.Kind, LongAdder> refused = new EnumMap<>(WorkloadEvent.Kind.class);
+
+		private Stats() {
+			for (WorkloadEvent.Kind kind : WorkloadEvent.Kind.values()) {
+				latency.put(kind, new LatencyHistogram());
+				refused.put(kind, new LongAdder());
+			}
+		}
+	}
+
+	/**
+	 * One simulated terminal: its till, its open cart and the copies it has out on rental.
+	 */
+	private final class Session {
+		private final TransactionNumbers.Terminal terminal = store.newTerminal();
+		private final ArrayDeque<Game> rentedOut = new ArrayDeque<>();
+		private Reservation cart = store.getReservations().open();
+		private long results;
+
+		/**
+		 * Takes one step, timing it.
+		 * 
+		 * @param event The step.
+		 */
+		private void run(WorkloadEvent event) {
+			Stats current = stats;
+			long start = System.nanoTime();
+			boolean done;
+			try {
+				done = take(event);
+			} catch (RuntimeException e) {
+				System.err.println("Load step " + event.getKind() + " failed: " + e);
+				done = false;
+			}
+			current.latency.get(event.getKind()).record(System.nanoTime() - start);
+			if (!done) {
+				current.refused.get(event.getKind()).increment();
+			}
+		}
+
+		/**
+		 * @param event The step.
+		 * @return false if the store turned it down, e.g. a sold-out game or an empty cart.
+		 */
+		private boolean take(WorkloadEvent event) {
+			switch (event.getKind()) {
+			case BROWSE:
+				results += store.getAvailableGames(event.getFormat().isEmpty() ? null : event.getFormat()).size();
+				return true;
+			case SEARCH:
+				results += store.searchGames(event.getText(), null).size();
+				return true;
+			case ADD:
+				Game game = store.getGame(event.getText(), event.getFormat());
+				if (game == null) {
+					return false;
+				}
+				if (!cart.isOpen()) {
+					cart = store.getReservations().open();
+				}
+				return cart.hold(game, event.getNights(), store.getPricing().priceOf(game, event.getNights()));
+			case CHECKOUT:
+				if (!cart.isOpen() || cart.getTransaction().getGamesList().isEmpty()) {
+					return false;
+				}
+				store.commitReservation(cart, terminal);
+				rentedOut.addAll(cart.getTransaction().getGamesList());
+				cart = store.getReservations().open();
+				return true;
+			case CANCEL:
+				boolean held = !cart.getTransaction().getGamesList().isEmpty();
+				store.getReservations().release(cart);
+				cart = store.getReservations().open();
+				return held;
+			case RETURN:
+				Game rented = rentedOut.poll();
+				if (rented == null) {
+					return false;
+				}
+				store.returnGame(rented.getTitle(), rented.getFormat());
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		private void close() {
+			store.getReservations().release(cart);
+			sink += results;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package game.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import game.model.BusinessDay;
+import game.model.Format;
+import game.model.Game;
+import game.model.Store;
+import game.model.Transaction;
+
+/**
+ * Generates repeatable catalogs and sales histories of any size, for benchmarks and load
+ * runs that must not depend on the real inventory file.
+ */
+public final class SyntheticData {
+	private static final String[] WORDS = { "Star", "Shadow", "Racer", "Legend", "Quest", "Battle", "Dragon",
+			"Galaxy", "Kingdom", "Ninja", "Pixel", "Storm", "Zero", "Forge", "Hunter", "Rift" };
+
+	private SyntheticData() {
+	}
+
+	/**
+	 * @param index The title's position in the catalog.
+	 * @return A unique, readable title.
+	 */
+	public static String title(int index) {
+		return WORDS[index % WORDS.length] + " " + WORDS[(index / WORDS.length) % WORDS.length] + " " + index;
+	}
+
+	/**
+	 * Writes a catalog in the {@code copies,format,title} layout of game_inventory.txt,
+	 * with every title stocked in every registered format.
+	 * 
+	 * @param path The file to write.
+	 * @param titles The number of titles.
+	 * @param copies The copies stocked per title and format.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public static void writeCatalog(Path path, int titles, int copies) throws IOException {
+		try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < titles; i++) {
+				for (Format format : Format.values()) {
+					out.write(copies + "," + format.getCode() + "," + title(i) + "\r\n");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replays random completed sales into the store as if read back from the journal,
+	 * spread over today so they count towards today's reports.
+	 * 
+	 * @param store The store to fill.
+	 * @param transactions The number of sales.
+	 * @param maxItems The most games in one sale.
+	 * @param seed The random seed, so runs can be repeated.
+	 */
+	public static void fillHistory(Store store, int transactions, int maxItems, long seed) {
+		Random random = new Random(seed);
+		List<Game> games = store.getAllGames();
+		long startOfDay = BusinessDay.startOf(BusinessDay.today());
+		long span = Math.max(1, System.currentTimeMillis() - startOfDay);
+		for (int i = 0; i < transactions; i++) {
+			Transaction transaction = new Transaction(i + 1, startOfDay + i * span / transactions);
+			int items = 1 + random.nextInt(maxItems);
+			for (int item = 0; item < items; item++) {
+				Game game = games.get(random.nextInt(games.size()));
+				transaction.addGame(game, 1, store.getPricing().priceOf(game, 1));
+			}
+			store.restoreCompletedTransaction(transaction);
+		}
+	}
+}
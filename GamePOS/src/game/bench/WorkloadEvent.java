@@ -0,0 +1,83 @@
+package game.bench;
+
+/**
+ * One step a simulated customer takes, as generated or read back from a recording. A
+ * recording holds one event per line as
+ * "worker&lt;TAB&gt;offsetMicros&lt;TAB&gt;kind&lt;TAB&gt;text&lt;TAB&gt;format&lt;TAB&gt;nights".
+ */
+public class WorkloadEvent {
+	/**
+	 * What the customer does. Returns and cart actions act on the worker's own cart and
+	 * earlier checkouts, so they carry no title.
+	 */
+	public enum Kind { BROWSE, SEARCH, ADD, CHECKOUT, CANCEL, RETURN }
+
+	private final int worker;
+	private final long offsetMicros;
+	private final Kind kind;
+	private final String text;
+	private final String format;
+	private final int nights;
+
+	/**
+	 * @param worker The simulated terminal that takes the step.
+	 * @param offsetMicros When it was taken, from the start of the run.
+	 * @param kind What is done.
+	 * @param text The title to add or the text to search for; empty otherwise.
+	 * @param format The format code to add or browse; empty for all formats.
+	 * @param nights The nights to rent for when adding; 0 otherwise.
+	 */
+	public WorkloadEvent(int worker, long offsetMicros, Kind kind, String text, String format, int nights) {
+		this.worker = worker;
+		this.offsetMicros = offsetMicros;
+		this.kind = kind;
+		this.text = text;
+		this.format = format;
+		this.nights = nights;
+	}
+
+	/**
+	 * @param line A line of a recording.
+	 * @return The event it holds.
+	 * @throws IllegalArgumentException If the line is malformed.
+	 */
+	public static WorkloadEvent parse(String line) {
+		String[] parts = line.split("\t", -1);
+		if (parts.length != 6) {
+			throw new IllegalArgumentException("Invalid line format: " + line);
+		}
+		try {
+			return new WorkloadEvent(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Kind.valueOf(parts[2]),
+					parts[3], parts[4], Integer.parseInt(parts[5]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number format: " + line);
+		}
+	}
+
+	/**
+	 * @param out The buffer to append the recording line to, without a line break.
+	 */
+	public void appendTo(StringBuilder out) {
+		out.append(worker).append('\t').append(offsetMicros).append('\t').append(kind.name()).append('\t')
+				.append(text).append('\t').append(format).append('\t').append(nights);
+	}
+
+	public int getWorker() {
+		return worker;
+	}
+	public long getOffsetMicros() {
+		return offsetMicros;
+	}
+	public Kind getKind() {
+		return kind;
+	}
+	public String getText() {
+		return text;
+	}
+	public String getFormat() {
+		return format;
+	}
+	public int getNights() {
+		return nights;
+	}
+}
@@ -0,0 +1,127 @@
+package game.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import game.model.Format;
+import game.model.Game;
+
+/**
+ * Makes up what one simulated terminal does next. Steps follow a weighted mix, and the
+ * titles asked for follow a Zipf popularity curve over the catalog, so a few hits get
+ * most of the traffic.
+ */
+public class WorkloadGenerator {
+	/** Mostly browsing and adding, with a checkout every few adds. */
+	public static final String DEFAULT_MIX = "browse=30,search=15,add=30,checkout=10,cancel=3,return=12";
+
+	private final int worker;
+	private final Random random;
+	private final List<String> titles;
+	private final Map<String, List<String>> formatsByTitle;
+	private final ZipfSampler popularity;
+	private final WorkloadEvent.Kind[] kinds;
+	private final int[] cumulativeWeights;
+
+	/**
+	 * @param worker The terminal the steps are for.
+	 * @param catalog The games in stock; popularity is ranked over their titles.
+	 * @param mix The relative weight of each kind of step, e.g. {@link #DEFAULT_MIX}.
+	 * @param exponent The Zipf skew of title popularity.
+	 * @param seed The random seed. Every terminal of a run shares the same popularity ranking.
+	 */
+	public WorkloadGenerator(int worker, List<Game> catalog, Map<WorkloadEvent.Kind, Integer> mix, double exponent, long seed) {
+		this.worker = worker;
+		this.random = new Random(seed * 31 + worker);
+		this.formatsByTitle = new LinkedHashMap<>();
+		List<Game> sorted = new ArrayList<>(catalog);
+		sorted.sort((a, b) -> a.getTitle().equals(b.getTitle()) ? a.getFormat().compareTo(b.getFormat())
+				: a.getTitle().compareTo(b.getTitle()));
+		for (Game game : sorted) {
+			formatsByTitle.computeIfAbsent(game.getTitle(), title -> new ArrayList<>()).add(game.getFormat());
+		}
+		this.titles = new ArrayList<>(formatsByTitle.keySet());
+		Collections.shuffle(titles, new Random(seed)); // Popularity unrelated to alphabetical order
+		this.popularity = new ZipfSampler(titles.size(), exponent);
+		this.kinds = mix.keySet().toArray(new WorkloadEvent.Kind[0]);
+		this.cumulativeWeights = new int[kinds.length];
+		int total = 0;
+		for (int i = 0; i < kinds.length; i++) {
+			total += mix.get(kinds[i]);
+			cumulativeWeights[i] = total;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException("The workload mix has no weight");
+		}
+	}
+
+	/**
+	 * @param offsetMicros When the step is taken, from the start of the run.
+	 * @return The next step.
+	 */
+	public WorkloadEvent next(long offsetMicros) {
+		WorkloadEvent.Kind kind = nextKind();
+		switch (kind) {
+		case BROWSE:
+			int formatIndex = random.nextInt(Format.count() + 1);
+			String format = formatIndex == Format.count() ? "" : Format.fromId(formatIndex).getCode();
+			return new WorkloadEvent(worker, offsetMicros, kind, "", format, 0);
+		case SEARCH:
+			String title = popularTitle();
+			String text = title.substring(0, Math.min(title.length(), 3 + random.nextInt(6)));
+			return new WorkloadEvent(worker, offsetMicros, kind, text, "", 0);
+		case ADD:
+			String wanted = popularTitle();
+			List<String> formats = formatsByTitle.get(wanted);
+			return new WorkloadEvent(worker, offsetMicros, kind, wanted, formats.get(random.nextInt(formats.size())),
+					1 + random.nextInt(3));
+		default:
+			return new WorkloadEvent(worker, offsetMicros, kind, "", "", 0);
+		}
+	}
+
+	private WorkloadEvent.Kind nextKind() {
+		int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < kinds.length; i++) {
+			if (pick < cumulativeWeights[i]) {
+				return kinds[i];
+			}
+		}
+		return kinds[kinds.length - 1];
+	}
+
+	private String popularTitle() {
+		return titles.get(popularity.next(random));
+	}
+
+	/**
+	 * @param mix Weights as "kind=weight" pairs separated by commas, e.g. "browse=30,checkout=10".
+	 * @return The weight of each kind named.
+	 * @throws IllegalArgumentException If a kind or weight is invalid.
+	 */
+	public static Map<WorkloadEvent.Kind, Integer> parseMix(String mix) {
+		Map<WorkloadEvent.Kind, Integer> weights = new EnumMap<>(WorkloadEvent.Kind.class);
+		for (String pair : mix.split(",")) {
+			String[] parts = pair.trim().split("=");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Invalid mix entry: " + pair);
+			}
+			int weight;
+			try {
+				weight = Integer.parseInt(parts[1].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number format in mix entry: " + pair);
+			}
+			if (weight < 0) {
+				throw new IllegalArgumentException("Invalid value; weight less than 0 in mix entry: " + pair);
+			}
+			weights.put(WorkloadEvent.Kind.valueOf(parts[0].trim().toUpperCase()), weight);
+		}
+		return weights;
+	}
+}
@@ -0,0 +1,46 @@
+package game.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks ranks so that rank k comes up in proportion to 1/k^s, the long-tailed popularity
+ * of a rental catalog: a few titles take most of the traffic and most titles are rarely
+ * asked for. Rank 0 is the most popular.
+ */
+public class ZipfSampler {
+	private final double[] cumulative;
+
+	/**
+	 * @param size The number of ranks.
+	 * @param exponent The skew; 0 is uniform and around 1 is typical of rentals.
+	 */
+	public ZipfSampler(int size, double exponent) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Nothing to sample from");
+		}
+		cumulative = new double[size];
+		double total = 0;
+		for (int rank = 0; rank < size; rank++) {
+			total += 1.0 / Math.pow(rank + 1, exponent);
+			cumulative[rank] = total;
+		}
+		for (int rank = 0; rank < size; rank++) {
+			cumulative[rank] /= total;
+		}
+	}
+
+	/**
+	 * @param random The source of randomness.
+	 * @return A rank from 0 to size - 1.
+	 */
+	public int next(Random random) {
+		int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		int rank = index >= 0 ? index : -index - 1;
+		return Math.min(rank, cumulative.length - 1);
+	}
+
+	public int size() {
+		return cumulative.length;
+	}
+}
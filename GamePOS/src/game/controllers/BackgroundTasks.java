@@ -0,0 +1,88 @@
+package game.controllers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javafx.concurrent.Task;
+import javafx.scene.control.Alert;
+
+/**
+ * Runs report building, window loading and persistence work off the JavaFX application thread.
+ * Results, failures and progress are published back on the application thread through the task.
+ */
+public final class BackgroundTasks {
+	private static final AtomicInteger threadCount = new AtomicInteger();
+	// Daemon threads so a report still running at exit never holds the JVM open
+	private static final ExecutorService executor = Executors.newCachedThreadPool(work -> {
+		Thread thread = new Thread(work, "pos-background-" + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private BackgroundTasks() {
+	}
+
+	/**
+	 * Starts a task in the background.
+	 *
+	 * @param task The task to run.
+	 * @param onSuccess Called on the application thread with the task's result.
+	 * @param onFailure Called on the application thread if the task throws; may be null.
+	 * @return The running task, for progress binding and cancellation.
+	 */
+	public static <T> Task<T> submit(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+		task.setOnSucceeded(event -> onSuccess.accept(task.getValue()));
+		task.setOnFailed(event -> {
+			Throwable error = task.getException();
+			System.err.println("Background task failed: " + error);
+			error.printStackTrace();
+			if (onFailure != null) {
+				onFailure.accept(error);
+			} else {
+				showError(error);
+			}
+		});
+		executor.execute(task);
+		return task;
+	}
+
+	/**
+	 * Starts a task in the background, reporting failures in an error dialog.
+	 *
+	 * @param task The task to run.
+	 * @param onSuccess Called on the application thread with the task's result.
+	 * @return The running task, for progress binding and cancellation.
+	 */
+	public static <T> Task<T> submit(Task<T> task, Consumer<T> onSuccess) {
+		return submit(task, onSuccess, null);
+	}
+
+	/**
+	 * @param error The failure to show.
+	 */
+	static void showError(Throwable error) {
+		Alert alert = new Alert(Alert.AlertType.ERROR);
+		alert.setTitle("Error");
+		alert.setHeaderText(null);
+		alert.setContentText(error.getMessage() != null ? error.getMessage() : error.toString());
+		alert.showAndWait();
+	}
+
+	/**
+	 * Cancels queued work and waits briefly for running tasks to finish.
+	 */
+	public static void shutdown() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,8 +1,8 @@
 package game.controllers;
 
-import java.text.DecimalFormat;
-import java.util.Map;
-
+import game.model.Format;
+import game.model.FormatBreakdown;
+import game.model.Money;
 import game.model.Store;
 import javafx.fxml.FXML;
 import javafx.scene.control.TextArea;
@@ -38,17 +38,18 @@ public class DailyTotalByFormatController {
 			return "Store data not available.";
 		}
 		StringBuilder formatBreakdown = new StringBuilder();
-		DecimalFormat priceFormat = new DecimalFormat("$0.00");
-		Map<String, Double[]> salesByFormat = gameStore.calculateDailySalesByFormat();
+		FormatBreakdown salesByFormat = gameStore.calculateDailySalesByFormat();
 		formatBreakdown.append(String.format("%8s %20s %20s\n", "Format", "Games Sold", "Total Sales"));
 		formatBreakdown.append("----------------------------------------------------------\n");
-		for (Map.Entry<String, Double[]> entry : salesByFormat.entrySet()) {
-			String format = entry.getKey();
-			Double[] salesData = entry.getValue();
+		for (Format format : Format.values()) {
+			long gamesSold = salesByFormat.getGamesSold(format);
+			if (gamesSold == 0) {
+				continue;
+			}
 			formatBreakdown.append(String.format("%6s %18d %20s\n", 
-					format, 
-					salesData[0].intValue(), 
-					priceFormat.format(salesData[1])));
+					format.getCode(), 
+					gamesSold, 
+					Money.format(salesByFormat.getSales(format))));
 		}
 		return formatBreakdown.toString();
 	}
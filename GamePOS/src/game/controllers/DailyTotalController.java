@@ -1,13 +1,19 @@
 package game.controllers;
 
+import game.model.Transaction;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
 public class DailyTotalController {
 	@FXML
-	private TextArea dailyTotalTextArea;
+	private ListView<Transaction> receiptListView;
+	@FXML
+	private Label summaryLabel;
 
 	private MainController mainController;
 
@@ -20,15 +26,35 @@ public class DailyTotalController {
 
 
 	public void initialize() {
-		// Set the font of the TextArea to a monospaced font
-		dailyTotalTextArea.setFont(Font.font("monospaced", FontWeight.NORMAL, 12));
+		Font monospaced = Font.font("monospaced", FontWeight.NORMAL, 12);
+		// The list only creates cells for the rows on screen, so each receipt is rendered when scrolled into view
+		receiptListView.setCellFactory(list -> new ListCell<>() {
+			@Override
+			protected void updateItem(Transaction item, boolean empty) {
+				super.updateItem(item, empty);
+				setFont(monospaced);
+				if (item == null || empty) {
+					setText(null);
+				} else {
+					setText(item.getReceipt());
+				}
+			}
+		});
+		summaryLabel.setFont(monospaced);
+	}
+
+    /**
+     * @param transactions The day's transactions, oldest first.
+     */
+	public void setTransactions(ObservableList<Transaction> transactions) {
+		receiptListView.setItems(transactions);
 	}
 
     /**
-     * @param totalReceipt The string containing formatted daily total receipt information.
+     * @param summary The day's totals, shown below the receipts.
      */
-	public void setDailyTotal(String totalReceipt) {
-		dailyTotalTextArea.setText(totalReceipt);
+	public void setSummary(String summary) {
+		summaryLabel.setText(summary);
 	}
 
 	@FXML
@@ -40,14 +66,6 @@ public class DailyTotalController {
 		}
 	}
 
-    /**
-     * @param text The text to be displayed in the TextArea.
-     */
-	public void setText(String text) {
-		dailyTotalTextArea.setText(text);
-
-	}
-
 
 
 }
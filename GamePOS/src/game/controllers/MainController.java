@@ -5,89 +5,104 @@
  */
 package game.controllers;
 
-import java.io.IOException;
-import java.text.DecimalFormat;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.function.Consumer;
 
+import game.metrics.Metrics;
+import game.metrics.Timer;
+import game.model.AvailabilityViews;
+import game.model.DailySales;
+import game.model.Format;
 import game.model.Game;
+import game.model.Money;
+import game.model.Reservation;
 import game.model.Store;
 import game.model.Transaction;
+import game.model.TransactionNumbers;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 
 public class MainController {
-	static Store gameStore;
+	// Measured from the click until the result is on screen
+	private static final Timer searchTimer = Metrics.timer("ui.search");
+	private static final Timer checkoutTimer = Metrics.timer("ui.checkout");
+	private static final Timer dailyTotalsTimer = Metrics.timer("ui.dailyTotals");
+	// Receipts copied per step of a report, between progress updates and cancellation checks
+	private static final int REPORT_BATCH = 1024;
+
+	private Store gameStore;
 
 	@FXML private ComboBox<String> formatComboBox;
 	@FXML private TableView<Game> gamesTable;
 	@FXML private TableColumn<Game, String> titleColumn;
 	@FXML private TableColumn<Game, String> formatColumn;
-	@FXML private TableColumn<Game, Integer> copiesColumn;
+	@FXML private TableColumn<Game, Number> copiesColumn;
 	@FXML private TextField searchField;
 	@FXML private ListView<String> cartListView;
-	private Transaction currentTransaction = new Transaction();
+	@FXML private Button checkoutButton;
+	@FXML private ProgressBar reportProgress;
+	@FXML private Button cancelReportButton;
+	// Holds the copies in the cart until checkout, or until the hold lapses
+	private Reservation cart;
+	// This window's till; sales are numbered from it when they commit
+	private TransactionNumbers.Terminal terminal;
+	// The table keeps this one list; filters refill it and stock changes patch single rows
+	private final ObservableList<Game> tableItems = FXCollections.observableArrayList();
+	private String filterFormat = "";
+	private String filterText = "";
+	// The report being built in the background, if any; a new report replaces it
+	private Task<?> runningReport;
 	/**
 	 * @param formatLetter The format letter (e.g., 'P', 'X', 'N').
 	 * @return The full name of the format.
 	 */
 	private String formatFullName(String formatLetter) {
-		switch (formatLetter) {
-		case "P":
-			return "PlayStation";
-		case "X":
-			return "X-Box";
-		case "N":
-			return "Nintendo";
-		default:
-			return formatLetter; 
-		}
+		Format format = Format.fromCode(formatLetter);
+		return format != null ? format.getDisplayName() : formatLetter;
 	}
 	/**
 	 * @param formatFullName The full name of the format.
-	 * @return The corresponding format letter.
+	 * @return The corresponding format letter, or "" for all formats.
 	 */
 	private String getFormatLetter(String formatFullName) {
-		switch (formatFullName) {
-		case "PlayStation":
-			return "P";
-		case "X-Box":
-			return "X";
-		case "Nintendo":
-			return "N";
-		default:
-			return ""; // Fallback for all formats
-		}
+		Format format = formatFullName == null ? null : Format.fromDisplayName(formatFullName);
+		return format != null ? format.getCode() : ""; // Fallback for all formats
 	}
 	/**
-	 * @param timestamp The timestamp to check.
-	 * @return True if the timestamp is from today, otherwise false.
+	 * @param formatLetters The format letters to offer.
+	 * @return The filter choices: a blank entry for all formats, then the full names.
 	 */
-	private boolean isToday(long timestamp) {
-		LocalDate transactionDate = Instant.ofEpochMilli(timestamp)
-				.atZone(ZoneId.systemDefault())
-				.toLocalDate();
-		return transactionDate.equals(LocalDate.now());
+	private List<String> formatChoices(List<String> formatLetters) {
+		List<String> choices = new ArrayList<>();
+		choices.add("");
+		for (String letter : formatLetters) {
+			choices.add(formatFullName(letter));
+		}
+		return choices;
 	}
 	public void initialize() {
-		titleColumn.setCellValueFactory(new PropertyValueFactory<>("title"));
-		formatColumn.setCellValueFactory(new PropertyValueFactory<>("format"));
+		titleColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getTitle()));
+		formatColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getFormat()));
 		formatColumn.setCellFactory(column -> new TableCell<>() {
 			@Override
 			protected void updateItem(String item, boolean empty) {
@@ -99,63 +114,164 @@ public class MainController {
 				}
 			}
 		});
-		copiesColumn.setCellValueFactory(new PropertyValueFactory<>("numberOfCopies"));
-		formatComboBox.setItems(FXCollections.observableArrayList("", "PlayStation", "X-Box", "Nintendo"));
+		copiesColumn.setCellValueFactory(cell -> cell.getValue().copiesProperty());
+		reportProgress.setVisible(false);
+		cancelReportButton.setVisible(false);
+		gamesTable.setItems(tableItems);
+		List<String> allFormats = new ArrayList<>();
+		for (Format format : Format.values()) {
+			allFormats.add(format.getCode());
+		}
+		formatComboBox.setItems(FXCollections.observableArrayList(formatChoices(allFormats)));
 		formatComboBox.valueProperty().addListener((obs, oldVal, newVal) -> {
 			loadGamesBasedOnFormat(getFormatLetter(newVal));
 		});
 		if (gameStore != null) {
 			List<String> formats = gameStore.getAvailableFormats();
-			formatComboBox.setItems(FXCollections.observableArrayList(formats));
+			formatComboBox.setItems(FXCollections.observableArrayList(formatChoices(formats)));
 			loadGames();
 		}
 	}
 	private void loadGames() {
-		List<Game> sortedGames = gameStore.getAvailableGames(null)
-				.stream()
-				.sorted(Comparator.comparing(Game::getTitle))
-				.collect(Collectors.toList());
-		gamesTable.setItems(FXCollections.observableArrayList(sortedGames));
+		filterFormat = "";
+		filterText = "";
+		applyFilter();
+	}
+	/**
+	 * Refills the table for the current format and search text.
+	 */
+	private void applyFilter() {
+		if (filterText.isEmpty()) {
+			// The store keeps these views sorted by title, so there is nothing to sort here
+			tableItems.setAll(gameStore.getAvailableView(filterFormat.isEmpty() ? null : filterFormat));
+		} else {
+			tableItems.setAll(gameStore.searchGames(filterText, filterFormat));
+		}
+	}
+	/**
+	 * @param game The game to check.
+	 * @return True if the game belongs in the table under the current filter.
+	 */
+	private boolean matchesFilter(Game game) {
+		return game.getNumberOfCopies() > 0
+				&& (filterFormat.isEmpty() || game.getFormat().equals(filterFormat))
+				&& game.getTitle().toLowerCase(Locale.ROOT).contains(filterText.toLowerCase(Locale.ROOT));
+	}
+	/**
+	 * Inserts or removes the one row whose availability changed, keeping title order.
+	 * 
+	 * @param game The game that sold out or came back.
+	 */
+	private void onAvailabilityChanged(Game game) {
+		int index = Collections.binarySearch(tableItems, game, AvailabilityViews.BY_TITLE);
+		boolean shown = matchesFilter(game);
+		if (shown && index < 0) {
+			tableItems.add(-index - 1, game);
+		} else if (!shown && index >= 0) {
+			tableItems.remove(index);
+		}
 	}
 	/**
 	 * @param store The store instance to set.
 	 */
 	public void setStore(Store store) {
-		MainController.gameStore = store;
-		if (MainController.gameStore != null) {
+		this.gameStore = store;
+		if (gameStore != null) {
+			terminal = store.newTerminal();
+			cart = store.getReservations().open();
+			store.addAvailabilityListener(game -> Platform.runLater(() -> onAvailabilityChanged(game)));
 			loadGames();
 		}
 	}
 	public void showFormatBreakdown() {
-		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource("/DailyTotalByFormat.fxml"));
-			Parent root = loader.load();
-
-			DailyTotalByFormatController controller = loader.getController();
-			controller.setStore(gameStore); 
-			controller.setText(controller.calculateFormatBreakdown());
-
-			Stage stage = new Stage();
-			stage.setTitle("Format Breakdown");
-			stage.setScene(new Scene(root));
+		Task<Parent> task = new Task<>() {
+			@Override
+			protected Parent call() throws Exception {
+				updateProgress(0, 3);
+				FXMLLoader loader = new FXMLLoader(getClass().getResource("/DailyTotalByFormat.fxml"));
+				Parent root = loader.load();
+				updateProgress(1, 3);
+				if (isCancelled()) {
+					return null;
+				}
 
-			stage.show();
-		} catch (IOException e) {
-			e.printStackTrace();
+				DailyTotalByFormatController controller = loader.getController();
+				controller.setStore(gameStore); 
+				String text = controller.calculateFormatBreakdown();
+				updateProgress(2, 3);
+				if (isCancelled()) {
+					return null;
+				}
+				controller.setText(text);
+				updateProgress(3, 3);
+				return root;
+			}
+		};
+		runReport(task, root -> showWindow("Format Breakdown", root), () -> { });
+	}
+	/**
+	 * Builds a report in the background, showing its progress until it finishes or is cancelled.
+	 * 
+	 * @param task The report to build.
+	 * @param onSuccess Called on the application thread with the finished report.
+	 * @param onStopped Called on the application thread if the report fails or is cancelled.
+	 */
+	private <T> void runReport(Task<T> task, Consumer<T> onSuccess, Runnable onStopped) {
+		if (runningReport != null) {
+			runningReport.cancel();
 		}
+		runningReport = task;
+		reportProgress.progressProperty().bind(task.progressProperty());
+		reportProgress.setVisible(true);
+		cancelReportButton.setVisible(true);
+		BackgroundTasks.submit(task, result -> {
+			reportFinished(task);
+			onSuccess.accept(result);
+		}, error -> {
+			reportFinished(task);
+			onStopped.run();
+			BackgroundTasks.showError(error);
+		});
+		task.setOnCancelled(event -> {
+			reportFinished(task);
+			onStopped.run();
+		});
+	}
+	/**
+	 * @param task The report that finished, failed or was cancelled.
+	 */
+	private void reportFinished(Task<?> task) {
+		if (runningReport != task) {
+			return; // A newer report owns the progress bar
+		}
+		runningReport = null;
+		reportProgress.progressProperty().unbind();
+		reportProgress.setVisible(false);
+		cancelReportButton.setVisible(false);
+	}
+	@FXML
+	private void onCancelReport() {
+		if (runningReport != null) {
+			runningReport.cancel();
+		}
+	}
+	/**
+	 * @param title The window title.
+	 * @param root The loaded window contents.
+	 */
+	private void showWindow(String title, Parent root) {
+		Stage stage = new Stage();
+		stage.setTitle(title);
+		stage.setScene(new Scene(root));
+		stage.show();
 	}
 	@FXML
 	private void onSearch() {
-		String searchText = searchField.getText().toLowerCase();
-		String selectedFormat = formatComboBox.getValue();
-
-		List<Game> filteredGames = gameStore.getAvailableGames(null).stream()
-				.filter(game -> (selectedFormat == null || selectedFormat.isEmpty() || game.getFormat().equalsIgnoreCase(selectedFormat)))
-				.filter(game -> game.getTitle().toLowerCase().contains(searchText))
-				.sorted(Comparator.comparing(Game::getTitle))
-				.collect(Collectors.toList());
-
-		gamesTable.setItems(FXCollections.observableArrayList(filteredGames));
+		filterFormat = getFormatLetter(formatComboBox.getValue());
+		filterText = searchField.getText();
+		long start = searchTimer.start();
+		applyFilter();
+		searchTimer.stop(start);
 	}
 	@FXML
 	private void onAddToCart() {
@@ -163,12 +279,17 @@ public class MainController {
 		if (selectedGame == null) {
 			return;
 		}
-		if (!selectedGame.rentGame()) {
+		if (!cart.isOpen()) {
+			boolean lostGames = cart.isExpiredWithGames();
+			cart = gameStore.getReservations().open();
+			if (lostGames) {
+				showAlert("Cart expired", "The cart was left too long and its games were put back. Please add them again.");
+			}
+		}
+		if (!cart.hold(selectedGame, 1, gameStore.getPricing().priceOf(selectedGame, 1))) {
 			showAlert("Game is sold out", "This game is sold out");
 			return; // Early exit if the game cannot be rented
 		}
-		currentTransaction.addGame(selectedGame);
-		gamesTable.refresh();
 	}
 	/**
 	 * @param title The title of the alert.
@@ -183,73 +304,89 @@ public class MainController {
 	}
 	@FXML
 	private void onCheckout() {
-		if (currentTransaction.getGamesList().isEmpty()) {
+		if (!cart.isOpen() || cart.getTransaction().getGamesList().isEmpty()) {
 			showAlert("Empty Cart", "Your cart is empty. Please add at least one game to proceed.");
 			return; 
 		}
 
-		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource("/ReceiptWindow.fxml"));
-			Parent root = loader.load();
-
-			ReceiptWindowController receiptController = loader.getController();
-			receiptController.setStore(gameStore);
-			receiptController.setCurrentTransaction(currentTransaction);
+		long start = checkoutTimer.start();
+		Reservation checkout = cart;
+		Task<Parent> task = new Task<>() {
+			@Override
+			protected Parent call() throws Exception {
+				FXMLLoader loader = new FXMLLoader(getClass().getResource("/ReceiptWindow.fxml"));
+				Parent root = loader.load();
 
+				ReceiptWindowController receiptController = loader.getController();
+				receiptController.setStore(gameStore);
+				receiptController.setTerminal(terminal);
+				receiptController.setReservation(checkout);
+				return root;
+			}
+		};
+		checkoutButton.setDisable(true);
+		BackgroundTasks.submit(task, root -> {
+			checkoutButton.setDisable(false);
 			Stage stage = new Stage();
 			stage.setTitle("Receipt");
 			stage.setScene(new Scene(root));
+			checkoutTimer.stop(start); // The receipt is up; the rest is the customer's time
 			stage.showAndWait(); 
 
-			currentTransaction = new Transaction();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+			if (!cart.isOpen()) {
+				cart = gameStore.getReservations().open(); // Sold or cancelled; a window closed without either keeps the cart
+			}
+		}, error -> {
+			checkoutTimer.fail(start);
+			checkoutButton.setDisable(false);
+			BackgroundTasks.showError(error);
+		});
 	}
 	@FXML
 	private void onShowDailyTotals() {
-		StringBuilder dailyReceipt = new StringBuilder();
-		DecimalFormat priceFormat = new DecimalFormat("$0.00");
-		int totalGamesSold = 0;
-		double totalMoneyMade = 0;
-
-		for (Transaction transaction : gameStore.getTransactionHistory()) {
-			if (isToday(transaction.getTimestamp())) {
-				dailyReceipt.append(transaction.getReceipt()).append("\n");
-				totalGamesSold += transaction.getGamesList().size();
-				totalMoneyMade += transaction.getTotalPrice();
-			}
-		}
-		dailyReceipt.append("\n----------------------------------------------------------\n");
-		dailyReceipt.append(String.format("Games Sold: %d\n", totalGamesSold));
-		dailyReceipt.append(String.format("Total Sales: %s\n", priceFormat.format(totalMoneyMade)));
-		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource("/DailyTotal.fxml"));
-			Parent root = loader.load();
+		long start = dailyTotalsTimer.start();
+		Task<Parent> task = new Task<>() {
+			@Override
+			protected Parent call() throws Exception {
+				List<Transaction> todays = gameStore.getTodaysTransactions();
+				int total = todays.size() + 1; // The window itself is the last step
+				ObservableList<Transaction> transactions = FXCollections.observableArrayList();
+				for (int from = 0; from < todays.size(); from += REPORT_BATCH) {
+					if (isCancelled()) {
+						return null;
+					}
+					transactions.addAll(todays.subList(from, Math.min(from + REPORT_BATCH, todays.size())));
+					updateProgress(transactions.size(), total);
+				}
+				// Totals come from the day's running aggregates; receipts are rendered by the list as they scroll into view
+				DailySales today = gameStore.getTodaysSales();
+				String summary = String.format("Games Sold: %d\nTotal Sales: %s",
+						today.getGamesSold(), Money.format(today.getTotalSales()));
 
-			DailyTotalController controller = loader.getController();
-			controller.setDailyTotal(dailyReceipt.toString());
-			controller.setMainController(this);
+				FXMLLoader loader = new FXMLLoader(getClass().getResource("/DailyTotal.fxml"));
+				Parent root = loader.load();
+				if (isCancelled()) {
+					return null;
+				}
 
-			Stage stage = new Stage();
-			stage.setTitle("Daily Total");
-			stage.setScene(new Scene(root));
-			stage.show();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+				DailyTotalController controller = loader.getController();
+				controller.setTransactions(transactions);
+				controller.setSummary(summary);
+				controller.setMainController(MainController.this);
+				updateProgress(total, total);
+				return root;
+			}
+		};
+		runReport(task, root -> {
+			showWindow("Daily Total", root);
+			dailyTotalsTimer.stop(start);
+		}, () -> dailyTotalsTimer.fail(start));
 	}
 	/**
 	 * @param format The format to filter games by.
 	 */
 	private void loadGamesBasedOnFormat(String format) {
-		List<Game> filteredGames;
-		if (format == null || format.isEmpty()) {
-			filteredGames = gameStore.getAvailableGames(null);
-		} else {
-			filteredGames = gameStore.getAvailableGames(format);
-		}
-		filteredGames.sort(Comparator.comparing(Game::getTitle));
-		gamesTable.setItems(FXCollections.observableArrayList(filteredGames));
+		filterFormat = format == null ? "" : format;
+		applyFilter();
 	}
 }
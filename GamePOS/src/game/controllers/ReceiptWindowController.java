@@ -1,9 +1,11 @@
 package game.controllers;
 
-import game.model.Game;
+import game.model.Reservation;
 import game.model.Store;
-import game.model.Transaction;
+import game.model.TransactionNumbers;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
 import javafx.scene.control.TextArea;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -12,8 +14,13 @@ import javafx.stage.Stage;
 public class ReceiptWindowController {
 	@FXML
 	private TextArea receiptTextArea;
-	private Transaction currentTransaction;
+	@FXML
+	private Button acceptButton;
+	@FXML
+	private Button cancelButton;
+	private Reservation reservation;
 	private Store store;
+	private TransactionNumbers.Terminal terminal;
 
     /**
      * @param text The receipt text to be displayed.
@@ -29,17 +36,42 @@ public class ReceiptWindowController {
 
 	@FXML
 	private void onAccept() {
-		if (currentTransaction != null && store != null) {
-			store.addCompletedTransaction(currentTransaction);
+		if (reservation == null || store == null) {
+			closeWindow();
+			return;
 		}
-		closeWindow();
+		// The sale waits on the journal's disk flush, so keep it off the application thread
+		Reservation accepted = reservation;
+		Task<Void> task = new Task<>() {
+			@Override
+			protected Void call() {
+				if (terminal != null) {
+					store.commitReservation(accepted, terminal);
+				} else {
+					store.commitReservation(accepted);
+				}
+				return null;
+			}
+		};
+		setButtonsDisabled(true);
+		BackgroundTasks.submit(task, done -> closeWindow(), error -> {
+			setButtonsDisabled(false);
+			BackgroundTasks.showError(error);
+		});
+	}
+    /**
+     * @param disabled True to block further clicks while the sale is being saved.
+     */
+	private void setButtonsDisabled(boolean disabled) {
+		acceptButton.setDisable(disabled);
+		cancelButton.setDisable(disabled);
 	}
     /**
-     * @param transaction The current transaction.
+     * @param reservation The cart being checked out.
      */
-	public void setCurrentTransaction(Transaction transaction) {
-		this.currentTransaction = transaction;
-		setReceiptText(currentTransaction.getReceipt());
+	public void setReservation(Reservation reservation) {
+		this.reservation = reservation;
+		setReceiptText(reservation.getTransaction().getReceipt());
 	}
 
     /**
@@ -49,12 +81,17 @@ public class ReceiptWindowController {
 		this.store = store;
 	}
 
+    /**
+     * @param terminal The till that numbers the sale when it is accepted.
+     */
+	public void setTerminal(TransactionNumbers.Terminal terminal) {
+		this.terminal = terminal;
+	}
+
 	@FXML
 	private void onCancel() {
-	    if (currentTransaction != null) {
-	        for (Game game : currentTransaction.getGamesList()) {
-	            store.returnGame(game.getTitle(), game.getFormat());
-	        }
+	    if (reservation != null) {
+	        store.getReservations().release(reservation);
 	    }
 	    closeWindow();
 	}
@@ -0,0 +1,110 @@
+package game.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, fixed-size latency histogram in the style of HdrHistogram. Each power of
+ * two is split into 16 linear buckets, so any recorded value is reported within about 6%
+ * and the whole range of a long fits in under a thousand counters. Recording is one
+ * bucket increment plus two adder updates, cheap enough to leave on everywhere.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param nanos A measured latency; negative values count as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		count.increment();
+		total.add(value);
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+			// Retry; another thread raised the max
+		}
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @param bucket A bucket index.
+	 * @return The largest value that falls in the bucket.
+	 */
+	static long highestValueIn(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+		long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		long lowest = (SUB_BUCKETS + subBucket) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * @param percentile The percentile, from 0 to 100.
+	 * @return The latency at or below which that share of recordings fall, in nanoseconds.
+	 */
+	public long getPercentile(double percentile) {
+		long recorded = count.sum();
+		if (recorded == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(recorded * percentile / 100.0));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= target) {
+				return Math.min(highestValueIn(bucket), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Forgets everything recorded so far. Recordings made while the reset runs may be
+	 * partly kept, which is fine for dropping a warm-up period.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			counts.set(bucket, 0);
+		}
+		count.reset();
+		total.reset();
+		max.set(0);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+	/**
+	 * @return The mean latency in nanoseconds.
+	 */
+	public double getMean() {
+		long recorded = count.sum();
+		return recorded == 0 ? 0 : (double) total.sum() / recorded;
+	}
+	/**
+	 * @return The longest latency recorded, in nanoseconds.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+}
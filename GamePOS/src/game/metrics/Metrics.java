@@ -0,0 +1,115 @@
+package game.metrics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The application's timers, by name. Each timer is published over JMX under
+ * {@code game.pos:type=Timer,name=<name>} when first used, and the whole set can be
+ * appended to a log file on a schedule.
+ */
+public final class Metrics {
+	private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+	private static ScheduledExecutorService logger;
+
+	private Metrics() {
+	}
+
+	/**
+	 * @param name The operation's name, e.g. "store.checkout".
+	 * @return The timer for that operation, created on first use.
+	 */
+	public static Timer timer(String name) {
+		Timer timer = timers.get(name);
+		return timer != null ? timer : timers.computeIfAbsent(name, Metrics::register);
+	}
+
+	private static Timer register(String name) {
+		Timer timer = new Timer(name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("game.pos:type=Timer,name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName)) {
+				server.registerMBean(timer, objectName);
+			}
+		} catch (JMException | RuntimeException e) {
+			System.err.println("Cannot publish timer " + name + " over JMX: " + e.getMessage());
+		}
+		return timer;
+	}
+
+	/**
+	 * Clears every timer, so later dumps only cover what runs from now on.
+	 */
+	public static void reset() {
+		for (Timer timer : timers.values()) {
+			timer.reset();
+		}
+	}
+
+	/**
+	 * @return One line per timer, sorted by name.
+	 */
+	public static String dump() {
+		StringBuilder out = new StringBuilder();
+		for (Timer timer : new TreeMap<>(timers).values()) {
+			out.append(String.format("%-32s count=%d errors=%d mean=%.3fms p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms%n",
+					timer.getName(), timer.getCount(), timer.getErrors(), timer.getMeanMillis(),
+					timer.getP50Millis(), timer.getP99Millis(), timer.getP999Millis(), timer.getMaxMillis()));
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Appends a dump of every timer to a file on a schedule.
+	 * 
+	 * @param filePath The log file.
+	 * @param intervalMinutes The minutes between dumps.
+	 */
+	public static synchronized void startLogging(String filePath, long intervalMinutes) {
+		if (logger != null) {
+			return;
+		}
+		logger = Executors.newSingleThreadScheduledExecutor(work -> {
+			Thread thread = new Thread(work, "metrics-log");
+			thread.setDaemon(true);
+			return thread;
+		});
+		logger.scheduleAtFixedRate(() -> writeDump(filePath), intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Stops the scheduled dumps and writes a final one.
+	 * 
+	 * @param filePath The log file.
+	 */
+	public static synchronized void stopLogging(String filePath) {
+		if (logger != null) {
+			logger.shutdownNow();
+			logger = null;
+			writeDump(filePath);
+		}
+	}
+
+	private static void writeDump(String filePath) {
+		try (PrintWriter out = new PrintWriter(new FileWriter(filePath, true))) {
+			out.println("--- " + LocalDateTime.now());
+			out.print(dump());
+		} catch (IOException e) {
+			System.err.println("Error writing metrics: " + e.getMessage());
+		}
+	}
+}
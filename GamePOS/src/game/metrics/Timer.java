@@ -0,0 +1,91 @@
+package game.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times one operation: how often it ran, how often it failed and how long it took.
+ * <pre>
+ * long start = timer.start();
+ * ... the operation ...
+ * timer.stop(start);
+ * </pre>
+ */
+public class Timer implements TimerMXBean {
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private final String name;
+	private final LatencyHistogram histogram = new LatencyHistogram();
+	private final LongAdder errors = new LongAdder();
+
+	Timer(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return The start time to pass to {@link #stop(long)}.
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * @param start The value returned by {@link #start()}.
+	 */
+	public void stop(long start) {
+		histogram.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Records a failed run; its time is recorded as well.
+	 * 
+	 * @param start The value returned by {@link #start()}.
+	 */
+	public void fail(long start) {
+		errors.increment();
+		stop(start);
+	}
+
+	/**
+	 * Clears the counts and latencies, e.g. once a warm-up has finished.
+	 */
+	public void reset() {
+		histogram.reset();
+		errors.reset();
+	}
+
+	public String getName() {
+		return name;
+	}
+	public LatencyHistogram getHistogram() {
+		return histogram;
+	}
+
+	@Override
+	public long getCount() {
+		return histogram.getCount();
+	}
+	@Override
+	public long getErrors() {
+		return errors.sum();
+	}
+	@Override
+	public double getMeanMillis() {
+		return histogram.getMean() / NANOS_PER_MILLI;
+	}
+	@Override
+	public double getP50Millis() {
+		return histogram.getPercentile(50) / NANOS_PER_MILLI;
+	}
+	@Override
+	public double getP99Millis() {
+		return histogram.getPercentile(99) / NANOS_PER_MILLI;
+	}
+	@Override
+	public double getP999Millis() {
+		return histogram.getPercentile(99.9) / NANOS_PER_MILLI;
+	}
+	@Override
+	public double getMaxMillis() {
+		return histogram.getMax() / NANOS_PER_MILLI;
+	}
+}
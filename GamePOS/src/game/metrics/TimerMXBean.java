@@ -0,0 +1,14 @@
+package game.metrics;
+
+/**
+ * The JMX view of one {@link Timer}. Latencies are in milliseconds.
+ */
+public interface TimerMXBean {
+	long getCount();
+	long getErrors();
+	double getMeanMillis();
+	double getP50Millis();
+	double getP99Millis();
+	double getP999Millis();
+	double getMaxMillis();
+}
@@ -0,0 +1,89 @@
+package game.model;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Title-sorted sets of the games that have copies available, one across all formats
+ * and one per format. Games move in and out only when they sell out or come back, so
+ * filtering the catalog by format never has to scan or sort it.
+ */
+public class AvailabilityViews {
+	/** The order of every view: by title, then by format. */
+	public static final Comparator<Game> BY_TITLE = Comparator.comparing(Game::getTitle)
+			.thenComparingInt(game -> game.getFormatType().getId());
+
+	private final NavigableSet<Game> all = new ConcurrentSkipListSet<>(BY_TITLE);
+	private final AtomicReferenceArray<NavigableSet<Game>> byFormat = new AtomicReferenceArray<>(Format.MAX_FORMATS);
+	private final List<Consumer<Game>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param listener Called on the changing thread after a game enters or leaves the views.
+	 */
+	public void addListener(Consumer<Game> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Brings the views in line with the game's current copy count.
+	 * <p>
+	 * Called after every sell-out or restock. Concurrent calls for one game are
+	 * serialized on the game and each re-reads the count, so whichever runs last
+	 * leaves the views matching the latest count.
+	 * 
+	 * @param game The game whose availability may have changed.
+	 */
+	public void update(Game game) {
+		synchronized (game) {
+			NavigableSet<Game> formatView = viewFor(game.getFormatType());
+			if (game.getNumberOfCopies() > 0) {
+				all.add(game);
+				formatView.add(game);
+			} else {
+				all.remove(game);
+				formatView.remove(game);
+			}
+		}
+		notifyListeners(game);
+	}
+
+	/**
+	 * @param game The game taken out of the inventory.
+	 */
+	public void remove(Game game) {
+		synchronized (game) {
+			all.remove(game);
+			viewFor(game.getFormatType()).remove(game);
+		}
+		notifyListeners(game);
+	}
+
+	private void notifyListeners(Game game) {
+		for (Consumer<Game> listener : listeners) {
+			listener.accept(game);
+		}
+	}
+
+	/**
+	 * @param format The format to view, or null for all formats.
+	 * @return A live, read-only view of the available games sorted by title.
+	 */
+	public NavigableSet<Game> get(Format format) {
+		return Collections.unmodifiableNavigableSet(format == null ? all : viewFor(format));
+	}
+
+	private NavigableSet<Game> viewFor(Format format) {
+		NavigableSet<Game> view = byFormat.get(format.getId());
+		if (view == null) {
+			byFormat.compareAndSet(format.getId(), null, new ConcurrentSkipListSet<>(BY_TITLE));
+			view = byFormat.get(format.getId());
+		}
+		return view;
+	}
+}
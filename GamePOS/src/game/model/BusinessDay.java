@@ -0,0 +1,43 @@
+package game.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Helpers for mapping timestamps onto business days in the store's time zone.
+ */
+public final class BusinessDay {
+
+	private BusinessDay() {
+	}
+
+	/**
+	 * @param timestamp The timestamp in epoch milliseconds.
+	 * @return The epoch day the timestamp falls on.
+	 */
+	public static long epochDayOf(long timestamp) {
+		return Instant.ofEpochMilli(timestamp)
+				.atZone(ZoneId.systemDefault())
+				.toLocalDate()
+				.toEpochDay();
+	}
+
+	/**
+	 * @param epochDay The epoch day.
+	 * @return The first millisecond of that day.
+	 */
+	public static long startOf(long epochDay) {
+		return LocalDate.ofEpochDay(epochDay)
+				.atStartOfDay(ZoneId.systemDefault())
+				.toInstant()
+				.toEpochMilli();
+	}
+
+	/**
+	 * @return The current epoch day.
+	 */
+	public static long today() {
+		return LocalDate.now().toEpochDay();
+	}
+}
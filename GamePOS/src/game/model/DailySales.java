@@ -0,0 +1,101 @@
+package game.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running sales counters for one business day. Checkouts add to the counters as they
+ * complete, so reports never need to walk the transaction history.
+ */
+public class DailySales {
+	private final long epochDay;
+	private final long dayStart;
+	private final long dayEnd;
+	private final LongAdder gamesSold = new LongAdder();
+	private final LongAdder totalSales = new LongAdder();
+	// Indexed by format id; sales are in cents
+	private final AtomicLongArray countByFormat = new AtomicLongArray(Format.MAX_FORMATS);
+	private final AtomicLongArray salesByFormat = new AtomicLongArray(Format.MAX_FORMATS);
+
+	/**
+	 * @param epochDay The business day these counters belong to.
+	 */
+	public DailySales(long epochDay) {
+		this.epochDay = epochDay;
+		this.dayStart = BusinessDay.startOf(epochDay);
+		this.dayEnd = BusinessDay.startOf(epochDay + 1);
+	}
+
+	/**
+	 * @param transaction The completed transaction to add to the counters.
+	 */
+	public void record(Transaction transaction) {
+		List<Game> games = transaction.getGamesList();
+		for (int i = 0; i < games.size(); i++) {
+			int formatId = games.get(i).getFormatType().getId();
+			countByFormat.incrementAndGet(formatId);
+			salesByFormat.addAndGet(formatId, transaction.getLinePrice(i));
+		}
+		gamesSold.add(games.size());
+		totalSales.add(transaction.getTotalCents());
+	}
+
+	/**
+	 * Adds counters saved in a snapshot.
+	 * 
+	 * @param games The number of games sold.
+	 * @param sales The total sales in cents.
+	 */
+	public void restore(long games, long sales) {
+		gamesSold.add(games);
+		totalSales.add(sales);
+	}
+
+	/**
+	 * Adds per-format counters saved in a snapshot.
+	 * 
+	 * @param format The game format.
+	 * @param count The number of games sold in that format.
+	 * @param sales The sales for that format in cents.
+	 */
+	public void restoreFormat(Format format, long count, long sales) {
+		countByFormat.addAndGet(format.getId(), count);
+		salesByFormat.addAndGet(format.getId(), sales);
+	}
+
+	/**
+	 * @param timestamp The timestamp to check.
+	 * @return true if the timestamp falls on this business day.
+	 */
+	public boolean contains(long timestamp) {
+		return timestamp >= dayStart && timestamp < dayEnd;
+	}
+
+	public long getEpochDay() {
+		return epochDay;
+	}
+	public long getGamesSold() {
+		return gamesSold.sum();
+	}
+	/**
+	 * @return The total sales in cents.
+	 */
+	public long getTotalSales() {
+		return totalSales.sum();
+	}
+
+	/**
+	 * @return The games sold and sales value per format.
+	 */
+	public FormatBreakdown getSalesByFormat() {
+		int formats = Format.count();
+		long[] counts = new long[formats];
+		long[] sales = new long[formats];
+		for (int i = 0; i < formats; i++) {
+			counts[i] = countByFormat.get(i);
+			sales[i] = salesByFormat.get(i);
+		}
+		return new FormatBreakdown(counts, sales);
+	}
+}
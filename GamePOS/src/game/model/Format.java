@@ -0,0 +1,151 @@
+package game.model;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A console format games are stocked in, identified in the inventory file by a code
+ * letter. PlayStation, X-Box and Nintendo are always known; further platforms can be
+ * registered from a formats file. Every format gets a dense id, so per-format counters
+ * can live in plain arrays indexed by {@link #getId()}.
+ */
+public final class Format {
+	/** The most formats that can be registered; ids fit in the low byte of a SKU key. */
+	public static final int MAX_FORMATS = 256;
+
+	private static volatile Format[] values = new Format[0];
+	private static volatile Map<String, Format> byCode = new HashMap<>();
+	private static volatile Map<String, Format> byDisplayName = new HashMap<>();
+
+	public static final Format PLAYSTATION = register("P", "PlayStation");
+	public static final Format XBOX = register("X", "X-Box");
+	public static final Format NINTENDO = register("N", "Nintendo");
+
+	private final int id;
+	private final String code;
+	private final String displayName;
+
+	private Format(int id, String code, String displayName) {
+		this.id = id;
+		this.code = code;
+		this.displayName = displayName;
+	}
+
+	/**
+	 * @return The dense index of this format, from 0 to {@link #count()} - 1.
+	 */
+	public int getId() {
+		return id;
+	}
+	/**
+	 * @return The letter used for the format in the inventory file.
+	 */
+	public String getCode() {
+		return code;
+	}
+	/**
+	 * @return The name shown to staff, e.g. "PlayStation".
+	 */
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	@Override
+	public String toString() {
+		return displayName;
+	}
+
+	/**
+	 * Registers a format, or returns the existing one if the code is already known.
+	 * 
+	 * @param code The code used in the inventory file.
+	 * @param displayName The name shown to staff.
+	 * @return The registered format.
+	 */
+	public static synchronized Format register(String code, String displayName) {
+		Format existing = byCode.get(code);
+		if (existing != null) {
+			return existing;
+		}
+		if (values.length == MAX_FORMATS) {
+			throw new IllegalArgumentException("Too many formats; cannot add " + code);
+		}
+		Format format = new Format(values.length, code, displayName);
+		Format[] newValues = Arrays.copyOf(values, values.length + 1);
+		newValues[format.id] = format;
+		Map<String, Format> newByCode = new HashMap<>(byCode);
+		newByCode.put(code, format);
+		Map<String, Format> newByDisplayName = new HashMap<>(byDisplayName);
+		newByDisplayName.put(displayName, format);
+		// Readers never lock, so publish fully built copies
+		byCode = newByCode;
+		byDisplayName = newByDisplayName;
+		values = newValues;
+		return format;
+	}
+
+	/**
+	 * Registers the formats listed in a file of {@code code,Display Name} lines.
+	 * 
+	 * @param filePath The path to the formats file.
+	 */
+	public static void loadFromFile(String filePath) {
+		try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				String[] parts = line.split(",");
+				if (parts.length == 2 && !parts[0].trim().isEmpty() && !parts[1].trim().isEmpty()) {
+					try {
+						register(parts[0].trim(), parts[1].trim());
+					} catch (IllegalArgumentException e) {
+						System.err.println("Invalid value in line " + lineNumber + ": " + line + "; Error: " + e.getMessage());
+					}
+				} else {
+					System.err.println("Invalid line format in line " + lineNumber + ": " + line);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Error reading file: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @param code The format code.
+	 * @return The matching format, or null if the code is unknown.
+	 */
+	public static Format fromCode(String code) {
+		return byCode.get(code);
+	}
+	/**
+	 * @param displayName The name shown to staff.
+	 * @return The matching format, or null if the name is unknown.
+	 */
+	public static Format fromDisplayName(String displayName) {
+		return byDisplayName.get(displayName);
+	}
+	/**
+	 * @param id The dense format id.
+	 * @return The format with that id.
+	 */
+	public static Format fromId(int id) {
+		return values[id];
+	}
+	/**
+	 * @return Every registered format, ordered by id.
+	 */
+	public static Format[] values() {
+		return values.clone();
+	}
+	/**
+	 * @return The number of registered formats.
+	 */
+	public static int count() {
+		return values.length;
+	}
+}
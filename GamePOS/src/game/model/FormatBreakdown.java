@@ -0,0 +1,40 @@
+package game.model;
+
+/**
+ * Games sold and sales value per format, held in primitive arrays indexed by
+ * {@link Format#getId()}.
+ */
+public class FormatBreakdown {
+	private final long[] gamesSold;
+	private final long[] sales;
+
+	/**
+	 * @param gamesSold The number of games sold, indexed by format id.
+	 * @param sales The sales in cents, indexed by format id.
+	 */
+	public FormatBreakdown(long[] gamesSold, long[] sales) {
+		this.gamesSold = gamesSold;
+		this.sales = sales;
+	}
+
+	/**
+	 * @return The number of format slots, which covers every format known when it was taken.
+	 */
+	public int size() {
+		return gamesSold.length;
+	}
+	/**
+	 * @param format The format.
+	 * @return The number of games sold in that format.
+	 */
+	public long getGamesSold(Format format) {
+		return format.getId() < gamesSold.length ? gamesSold[format.getId()] : 0;
+	}
+	/**
+	 * @param format The format.
+	 * @return The sales for that format in cents.
+	 */
+	public long getSales(Format format) {
+		return format.getId() < sales.length ? sales[format.getId()] : 0;
+	}
+}
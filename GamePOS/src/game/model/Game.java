@@ -1,19 +1,41 @@
 package game.model;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
 public class Game {
 	private String title;
-	private String format; // 'N' for Nintendo, 'P' for PS4, 'X' for Xbox
-	private int numberOfCopies;
+	private Format format;
+	// Shared by every checkout terminal, so updates go through CAS instead of a lock
+	private final AtomicInteger numberOfCopies;
+	private final AtomicInteger copiesRentedOut = new AtomicInteger();
+	// Copies withdrawn from the inventory while out or held; taken back as they return
+	private final AtomicInteger copiesOwed = new AtomicInteger();
+	// Told when the game sells out or comes back, not on every copy
+	private volatile Consumer<Game> availabilityListener;
+	// Told the change in available copies on every rental, return and restock
+	private volatile ObjIntConsumer<Game> stockListener;
+	// Told when the last copy owed to a withdrawal has come back
+	private volatile Consumer<Game> withdrawnListener;
+	// Only created once a table shows the game, so headless use never touches JavaFX
+	private volatile ReadOnlyIntegerWrapper copiesProperty;
+	private final AtomicBoolean copiesUpdatePending = new AtomicBoolean();
 
 	/**
 	 * @param title The title of the game.
-	 * @param format The format of the game ('N', 'P', 'X').
+	 * @param format The format code of the game ('N', 'P', 'X', or one registered from config).
 	 * @param numberOfCopies The number of copies available for rent.
 	 */
 	public Game(String title, String format, int numberOfCopies) {
 		this.title = title;
-		this.format = format;
-		this.numberOfCopies = numberOfCopies;
+		this.format = toFormat(format);
+		this.numberOfCopies = new AtomicInteger(numberOfCopies);
 	}
 
 	// Getters and Setters
@@ -21,41 +43,206 @@ public class Game {
 		this.title = title;
 	}
 	public void setFormat(String format) {
-		this.format = format;
+		this.format = toFormat(format);
 	}
 	public void setNumberOfCopies(int numberOfCopies) {
-		this.numberOfCopies = numberOfCopies;
+		int previous = this.numberOfCopies.getAndSet(numberOfCopies);
+		copiesChanged();
+		stockChanged(numberOfCopies - previous);
+		if ((previous > 0) != (numberOfCopies > 0)) {
+			availabilityChanged();
+		}
 	}
 	public String getTitle() {
 		return title;
 	}
+	/**
+	 * @return The format code, e.g. "P".
+	 */
 	public String getFormat() {
+		return format.getCode();
+	}
+	public Format getFormatType() {
 		return format;
 	}
 	public int getNumberOfCopies() {
-		return numberOfCopies;
+		return numberOfCopies.get();
+	}
+	/**
+	 * @return The number of copies out on completed rentals and not yet returned.
+	 */
+	public int getCopiesRentedOut() {
+		return copiesRentedOut.get();
+	}
+	/**
+	 * @return An observable copy count for the UI, updated on the JavaFX thread whenever
+	 *         copies are rented or returned, from any terminal.
+	 */
+	public synchronized ReadOnlyIntegerProperty copiesProperty() {
+		if (copiesProperty == null) {
+			copiesProperty = new ReadOnlyIntegerWrapper(this, "numberOfCopies", numberOfCopies.get());
+		}
+		return copiesProperty.getReadOnlyProperty();
+	}
+	private void copiesChanged() {
+		ReadOnlyIntegerWrapper property = copiesProperty;
+		if (property == null) {
+			return;
+		}
+		if (Platform.isFxApplicationThread()) {
+			property.set(numberOfCopies.get());
+		} else if (copiesUpdatePending.compareAndSet(false, true)) {
+			// Coalesce a burst of changes into one update that reads the latest count
+			Platform.runLater(() -> {
+				copiesUpdatePending.set(false);
+				property.set(numberOfCopies.get());
+			});
+		}
+	}
+	/**
+	 * @param listener Called after the game sells out or becomes available again, or null.
+	 */
+	void setAvailabilityListener(Consumer<Game> listener) {
+		this.availabilityListener = listener;
+	}
+	/**
+	 * @param listener Called with the game and the change in available copies, or null.
+	 */
+	void setStockListener(ObjIntConsumer<Game> listener) {
+		this.stockListener = listener;
+	}
+	/**
+	 * @param listener Called once every withdrawn copy is back out of circulation, or null.
+	 */
+	void setWithdrawnListener(Consumer<Game> listener) {
+		this.withdrawnListener = listener;
+	}
+	private void stockChanged(int delta) {
+		ObjIntConsumer<Game> listener = stockListener;
+		if (listener != null && delta != 0) {
+			listener.accept(this, delta);
+		}
+	}
+	private void availabilityChanged() {
+		Consumer<Game> listener = availabilityListener;
+		if (listener != null) {
+			listener.accept(this);
+		}
+	}
+	/**
+	 * Adds copies to the stock, or withdraws them if negative. Copies withdrawn while out
+	 * on rental or held in carts come off the stock as they return, so the count of
+	 * copies available never goes below zero.
+	 * 
+	 * @param delta The change in copies owned.
+	 */
+	void addCopies(int delta) {
+		if (delta < 0) {
+			copiesOwed.addAndGet(-delta);
+		} else {
+			while (delta > 0 && takeOwedCopy()) {
+				delta--; // A restock first makes up for copies withdrawn but not yet back
+			}
+			if (delta > 0) {
+				int copies = numberOfCopies.addAndGet(delta);
+				copiesChanged();
+				stockChanged(delta);
+				if (copies == delta) {
+					availabilityChanged();
+				}
+			}
+		}
+		settleOwedCopies();
+	}
+	/**
+	 * @return The number of withdrawn copies still to come back.
+	 */
+	int getCopiesOwed() {
+		return copiesOwed.get();
+	}
+	private boolean takeOwedCopy() {
+		int owed;
+		do {
+			owed = copiesOwed.get();
+			if (owed <= 0) {
+				return false;
+			}
+		} while (!copiesOwed.compareAndSet(owed, owed - 1));
+		Consumer<Game> listener = withdrawnListener;
+		if (owed == 1 && listener != null) {
+			listener.accept(this);
+		}
+		return true;
+	}
+	/**
+	 * Withdraws copies in stock for any still owed. A return and a withdrawal racing each
+	 * other can leave a copy in stock and one owed; whichever comes second settles them.
+	 */
+	private void settleOwedCopies() {
+		while (copiesOwed.get() > 0 && rentGame()) {
+			if (!takeOwedCopy()) {
+				restockCopy(); // Settled by another thread meanwhile
+				return;
+			}
+		}
+	}
+	/**
+	 * @param delta The number of copies that went out on rental, or came back if negative.
+	 */
+	void addCopiesRentedOut(int delta) {
+		copiesRentedOut.addAndGet(delta);
 	}
 	/**
 	 * @return True if a copy was successfully rented, false if no copies were available.
 	 */
 	public boolean rentGame() {
-		if (numberOfCopies > 0) {
-			numberOfCopies--;
-			return true;  
-		}else {
-			return false;
+		int current;
+		do {
+			current = numberOfCopies.get();
+			if (current <= 0) {
+				return false;
+			}
+		} while (!numberOfCopies.compareAndSet(current, current - 1));
+		copiesChanged();
+		stockChanged(-1);
+		if (current == 1) {
+			availabilityChanged();
 		}
+		return true;
 	}
     /**
      * @return A string representation of the game.
      */
 	@Override
 	public String toString() {
-		return String.format("%s - Format: %s, Copies Available: %d", title, format, numberOfCopies);
+		return String.format("%s - Format: %s, Copies Available: %d", title, format.getCode(), numberOfCopies.get());
+	}
+
+	private static Format toFormat(String code) {
+		Format format = Format.fromCode(code);
+		if (format == null) {
+			throw new IllegalArgumentException("Unknown format: " + code);
+		}
+		return format;
 	}
 
+	/**
+	 * Puts a copy back in stock, unless it was withdrawn while it was out.
+	 */
 	public void returnGame() {
-		numberOfCopies++;
-		
+		if (takeOwedCopy()) {
+			return;
+		}
+		restockCopy();
+		settleOwedCopies();
+	}
+
+	private void restockCopy() {
+		int copies = numberOfCopies.incrementAndGet();
+		copiesChanged();
+		stockChanged(1);
+		if (copies == 1) {
+			availabilityChanged();
+		}
 	}
 }
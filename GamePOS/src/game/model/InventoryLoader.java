@@ -0,0 +1,291 @@
+package game.model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parses {@code copies,format,title} inventory records straight out of a memory-mapped
+ * file. Fields are located by byte offset, so the only strings built per line are the
+ * title and, for unusual formats, the format. Large files can be split into chunks at
+ * line boundaries and parsed on several cores.
+ */
+public class InventoryLoader {
+	private static final int PARALLEL_THRESHOLD_BYTES = 1 << 20;
+	private static final String[] ASCII_STRINGS = new String[128];
+
+	static {
+		for (int i = 0; i < ASCII_STRINGS.length; i++) {
+			ASCII_STRINGS[i] = String.valueOf((char) i);
+		}
+	}
+
+	private final Predicate<String> formatValidator;
+
+	/**
+	 * @param formatValidator Accepts the format codes the store can rent out.
+	 */
+	public InventoryLoader(Predicate<String> formatValidator) {
+		this.formatValidator = formatValidator;
+	}
+
+	/**
+	 * Parses the file and hands every valid game to the sink in file order. Malformed
+	 * lines are reported on standard error with their line number and skip to the next line.
+	 * 
+	 * @param path The inventory file.
+	 * @param parallel Whether a large file may be parsed in chunks across cores.
+	 * @param sink Receives each game parsed from a valid line.
+	 * @return The number of games parsed.
+	 * @throws IOException If the file cannot be mapped.
+	 */
+	public int load(Path path, boolean parallel, Consumer<Game> sink) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Inventory file too large to map: " + channel.size() + " bytes");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		int size = buffer.limit();
+		int chunks = parallel && size >= PARALLEL_THRESHOLD_BYTES
+				? Runtime.getRuntime().availableProcessors() : 1;
+		int[] bounds = chunkBounds(buffer, size, chunks);
+
+		List<Chunk> parsed = IntStream.range(0, bounds.length - 1)
+				.parallel()
+				.mapToObj(i -> parseChunk(buffer, bounds[i], bounds[i + 1]))
+				.collect(Collectors.toList());
+
+		int firstLine = 1;
+		int loaded = 0;
+		for (Chunk chunk : parsed) {
+			for (Game game : chunk.games) {
+				sink.accept(game);
+			}
+			for (LineError error : chunk.errors) {
+				System.err.println(error.describe(firstLine));
+			}
+			loaded += chunk.games.size();
+			firstLine += chunk.lines;
+		}
+		return loaded;
+	}
+
+	/**
+	 * Parses one line by the same rules as {@link #load}, for callers that already hold
+	 * the line as text. A malformed line is reported on standard error.
+	 * 
+	 * @param line The line, without its line break.
+	 * @param lineNumber The line's number in the file, for the error message.
+	 * @return The game on the line, or null if the line is malformed.
+	 */
+	public Game parseLine(String line, int lineNumber) {
+		String[] parts = line.split(",", -1);
+		if (parts.length != 3) {
+			System.err.println("Invalid line format in line " + lineNumber + ": " + line);
+			return null;
+		}
+		int numberOfCopies;
+		try {
+			numberOfCopies = Integer.parseInt(parts[0].trim());
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number format in line " + lineNumber + ": " + line);
+			return null;
+		}
+		if (numberOfCopies < 1) {
+			System.err.println("Invalid value; Number of copies less than 1 in line " + lineNumber + ": " + line);
+			return null;
+		}
+		String format = parts[1].trim();
+		if (!formatValidator.test(format)) {
+			System.err.println("Invalid value; Unknown format: " + format + " in line " + lineNumber + ": " + line);
+			return null;
+		}
+		String title = parts[2].trim();
+		if (title.isEmpty()) {
+			System.err.println("Invalid value; Empty title in line " + lineNumber + ": " + line);
+			return null;
+		}
+		return new Game(title, format, numberOfCopies);
+	}
+
+	/**
+	 * @return Chunk start offsets, each just after a newline, ending with the file size.
+	 */
+	private static int[] chunkBounds(MappedByteBuffer buffer, int size, int chunks) {
+		List<Integer> bounds = new ArrayList<>();
+		bounds.add(0);
+		for (int i = 1; i < chunks; i++) {
+			int offset = Math.max((int) ((long) size * i / chunks), bounds.get(bounds.size() - 1));
+			while (offset < size && buffer.get(offset - 1) != '\n') {
+				offset++;
+			}
+			if (offset < size && offset > bounds.get(bounds.size() - 1)) {
+				bounds.add(offset);
+			}
+		}
+		bounds.add(size);
+		return bounds.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private Chunk parseChunk(MappedByteBuffer buffer, int start, int end) {
+		Chunk chunk = new Chunk();
+		byte[] scratch = new byte[256];
+		int lineStart = start;
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int next = lineEnd + 1;
+			if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			chunk.lines++;
+			if (scratch.length < lineEnd - lineStart) {
+				scratch = new byte[Math.max(scratch.length * 2, lineEnd - lineStart)];
+			}
+			parseLine(buffer, lineStart, lineEnd, scratch, chunk);
+			lineStart = next;
+		}
+		return chunk;
+	}
+
+	private void parseLine(MappedByteBuffer buffer, int start, int end, byte[] scratch, Chunk chunk) {
+		int firstComma = indexOf(buffer, ',', start, end);
+		int secondComma = firstComma < 0 ? -1 : indexOf(buffer, ',', firstComma + 1, end);
+		if (secondComma < 0 || indexOf(buffer, ',', secondComma + 1, end) >= 0) {
+			chunk.error(chunk.lines, "Invalid line format", buffer, start, end);
+			return;
+		}
+
+		int copiesStart = trimStart(buffer, start, firstComma);
+		int copiesEnd = trimEnd(buffer, copiesStart, firstComma);
+		int numberOfCopies = parseInt(buffer, copiesStart, copiesEnd);
+		if (numberOfCopies == Integer.MIN_VALUE) {
+			chunk.error(chunk.lines, "Invalid number format", buffer, start, end);
+			return;
+		}
+		if (numberOfCopies < 1) {
+			chunk.error(chunk.lines, "Invalid value; Number of copies less than 1", buffer, start, end);
+			return;
+		}
+
+		int formatStart = trimStart(buffer, firstComma + 1, secondComma);
+		int formatEnd = trimEnd(buffer, formatStart, secondComma);
+		String format = decode(buffer, formatStart, formatEnd, scratch);
+		if (!formatValidator.test(format)) {
+			chunk.error(chunk.lines, "Invalid value; Unknown format: " + format, buffer, start, end);
+			return;
+		}
+
+		int titleStart = trimStart(buffer, secondComma + 1, end);
+		int titleEnd = trimEnd(buffer, titleStart, end);
+		if (titleStart == titleEnd) {
+			chunk.error(chunk.lines, "Invalid value; Empty title", buffer, start, end);
+			return;
+		}
+		String title = decode(buffer, titleStart, titleEnd, scratch);
+		chunk.games.add(new Game(title, format, numberOfCopies));
+	}
+
+	private static int indexOf(MappedByteBuffer buffer, char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int trimStart(MappedByteBuffer buffer, int from, int to) {
+		while (from < to && (buffer.get(from) & 0xff) <= ' ') {
+			from++;
+		}
+		return from;
+	}
+
+	private static int trimEnd(MappedByteBuffer buffer, int from, int to) {
+		while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') {
+			to--;
+		}
+		return to;
+	}
+
+	/**
+	 * @return The parsed value, or Integer.MIN_VALUE if the bytes are not a valid int.
+	 */
+	private static int parseInt(MappedByteBuffer buffer, int from, int to) {
+		if (from == to) {
+			return Integer.MIN_VALUE;
+		}
+		boolean negative = buffer.get(from) == '-';
+		if (negative || buffer.get(from) == '+') {
+			from++;
+			if (from == to) {
+				return Integer.MIN_VALUE;
+			}
+		}
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return Integer.MIN_VALUE;
+			}
+			value = value * 10 + digit;
+			if (value > Integer.MAX_VALUE) {
+				return Integer.MIN_VALUE;
+			}
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	private static String decode(MappedByteBuffer buffer, int from, int to, byte[] scratch) {
+		if (to - from == 1 && buffer.get(from) >= 0) {
+			return ASCII_STRINGS[buffer.get(from)];
+		}
+		buffer.get(from, scratch, 0, to - from);
+		return new String(scratch, 0, to - from, StandardCharsets.UTF_8);
+	}
+
+	private static class Chunk {
+		private final List<Game> games = new ArrayList<>();
+		private final List<LineError> errors = new ArrayList<>();
+		private int lines;
+
+		void error(int line, String reason, MappedByteBuffer buffer, int start, int end) {
+			byte[] text = new byte[end - start];
+			buffer.get(start, text);
+			errors.add(new LineError(line, reason, new String(text, StandardCharsets.UTF_8)));
+		}
+	}
+
+	private static class LineError {
+		private final int lineInChunk;
+		private final String reason;
+		private final String text;
+
+		LineError(int lineInChunk, String reason, String text) {
+			this.lineInChunk = lineInChunk;
+			this.reason = reason;
+			this.text = text;
+		}
+
+		/**
+		 * @param firstLine The file line number the chunk starts at.
+		 */
+		String describe(int firstLine) {
+			return reason + " in line " + (firstLine + lineInChunk - 1) + ": " + text;
+		}
+	}
+}
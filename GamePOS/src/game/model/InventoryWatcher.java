@@ -0,0 +1,187 @@
+package game.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import game.metrics.Metrics;
+import game.metrics.Timer;
+
+/**
+ * Picks up edits to the inventory file while the store is open. When the file changes,
+ * only lines not seen in the previous version are parsed, and only the games whose copy
+ * count changed are touched: restocks add copies, cuts and removed lines take them away.
+ * Copies out on rental or held in carts are kept, and sales carry on throughout.
+ * <p>
+ * The file's counts are the copies the store owns, as at startup, when sales replayed
+ * from the journal are taken out of them. Edits are therefore not journaled; the next
+ * start reads the edited file.
+ */
+public class InventoryWatcher implements Closeable {
+	// Editors often write a file in several steps; wait for them to finish
+	private static final long QUIET_MILLIS = 250;
+	private static final Timer reloadTimer = Metrics.timer("store.reloadInventory");
+
+	private final Store store;
+	private final Path path;
+	private final InventoryLoader loader = new InventoryLoader(code -> Format.fromCode(code) != null);
+	// Each line of the last version, parsed; null for a malformed line
+	private Map<String, Game> parsedLines = new HashMap<>();
+	// The copies the last version lists, by title and format
+	private Map<String, Game> stocked = new LinkedHashMap<>();
+	private volatile WatchService watcher;
+	private volatile boolean closed;
+
+	/**
+	 * Takes the file as it is now as the starting point. Create it right after loading
+	 * the store from the same file.
+	 * 
+	 * @param store The store loaded from the file.
+	 * @param path The inventory file.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public InventoryWatcher(Store store, Path path) throws IOException {
+		this.store = store;
+		this.path = path.toAbsolutePath();
+		read();
+	}
+
+	/**
+	 * Starts watching the file on a background thread.
+	 * 
+	 * @throws IOException If the file's directory cannot be watched.
+	 */
+	public synchronized void start() throws IOException {
+		if (watcher != null) {
+			return;
+		}
+		watcher = FileSystems.getDefault().newWatchService();
+		path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		Thread thread = new Thread(this::watch, "inventory-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void watch() {
+		try {
+			while (!closed) {
+				if (!isChanged(watcher.take())) {
+					continue;
+				}
+				WatchKey more;
+				while ((more = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					isChanged(more);
+				}
+				reload();
+			}
+		} catch (ClosedWatchServiceException e) {
+			// Closed
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @param key A signalled key, which is reset.
+	 * @return true if one of its events is for the inventory file.
+	 */
+	private boolean isChanged(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW
+					|| (context instanceof Path && path.getFileName().equals(context))) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Reads the file and applies what changed since the last read. Called by the watcher,
+	 * and may be called directly.
+	 * 
+	 * @return The number of games whose copies changed, were added or were delisted.
+	 */
+	public synchronized int reload() {
+		long start = reloadTimer.start();
+		Map<String, Game> previous = stocked;
+		try {
+			read();
+		} catch (IOException e) {
+			// E.g. the file is being replaced; the next change event reads it again
+			System.err.println("Error reading file: " + e.getMessage());
+			reloadTimer.fail(start);
+			return 0;
+		}
+		List<Game> changes = new ArrayList<>();
+		List<Game> delisted = new ArrayList<>();
+		for (Map.Entry<String, Game> entry : stocked.entrySet()) {
+			Game now = entry.getValue();
+			Game before = previous.get(entry.getKey());
+			int delta = now.getNumberOfCopies() - (before != null ? before.getNumberOfCopies() : 0);
+			if (delta != 0) {
+				changes.add(new Game(now.getTitle(), now.getFormat(), delta));
+			}
+		}
+		for (Map.Entry<String, Game> entry : previous.entrySet()) {
+			if (!stocked.containsKey(entry.getKey())) {
+				Game before = entry.getValue();
+				delisted.add(new Game(before.getTitle(), before.getFormat(), -before.getNumberOfCopies()));
+			}
+		}
+		if (!changes.isEmpty() || !delisted.isEmpty()) {
+			store.applyInventoryChanges(changes, delisted);
+		}
+		reloadTimer.stop(start);
+		return changes.size() + delisted.size();
+	}
+
+	/**
+	 * Reads the file, parsing only lines the last version did not have. As in a full load,
+	 * a later line for the same game replaces an earlier one.
+	 */
+	private void read() throws IOException {
+		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		Map<String, Game> parsed = new HashMap<>();
+		Map<String, Game> games = new LinkedHashMap<>();
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+			Game game;
+			if (parsed.containsKey(line)) {
+				game = parsed.get(line);
+			} else {
+				game = parsedLines.containsKey(line) ? parsedLines.get(line) : loader.parseLine(line, i + 1);
+				parsed.put(line, game);
+			}
+			if (game != null) {
+				games.put(game.getTitle() + '\0' + game.getFormat(), game);
+			}
+		}
+		parsedLines = parsed;
+		stocked = games;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		if (watcher != null) {
+			watcher.close();
+		}
+	}
+}
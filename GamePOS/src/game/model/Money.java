@@ -0,0 +1,59 @@
+package game.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Helpers for amounts held as a primitive long number of cents, so totals add up exactly.
+ */
+public final class Money {
+
+	private Money() {
+	}
+
+	/**
+	 * @param amount A dollar amount such as "2.50" or "$2.50".
+	 * @return The amount in cents.
+	 * @throws IllegalArgumentException If the amount is not a number or has fractions of a cent.
+	 */
+	public static long parse(String amount) {
+		String text = amount.trim();
+		if (text.startsWith("$")) {
+			text = text.substring(1);
+		}
+		try {
+			return new BigDecimal(text).movePointRight(2).longValueExact();
+		} catch (NumberFormatException | ArithmeticException e) {
+			throw new IllegalArgumentException("Invalid amount: " + amount);
+		}
+	}
+
+	/**
+	 * @param cents The amount in cents.
+	 * @return The amount as dollars and cents, e.g. $2.00.
+	 */
+	public static String format(long cents) {
+		StringBuilder out = new StringBuilder(12);
+		appendTo(out, cents);
+		return out.toString();
+	}
+
+	/**
+	 * @param out The buffer to append to.
+	 * @param cents The amount in cents, written as dollars and cents.
+	 */
+	public static void appendTo(StringBuilder out, long cents) {
+		long dollars = cents / 100;
+		long remainder = cents % 100;
+		if (cents < 0) {
+			// Negated apart, since the most negative amount has no positive counterpart
+			out.append('-');
+			dollars = -dollars;
+			remainder = -remainder;
+		}
+		out.append('$').append(dollars).append('.');
+		if (remainder < 10) {
+			out.append('0');
+		}
+		out.append(remainder);
+	}
+}
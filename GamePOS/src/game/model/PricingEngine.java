@@ -0,0 +1,144 @@
+package game.model;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nightly rental rates in cents. A rate set for a title wins over one set for its format,
+ * which wins over the default rate.
+ */
+public class PricingEngine {
+	/** The rate charged before per-format and per-title rates existed, in cents per night. */
+	public static final long STANDARD_RATE = 200;
+	private static final long UNSET = -1;
+
+	private volatile long defaultRate;
+	// Indexed by format id and replaced on write, so lookups never lock
+	private volatile long[] formatRates = new long[0];
+	private final Map<String, Long> titleRates = new ConcurrentHashMap<>();
+
+	public PricingEngine() {
+		this(STANDARD_RATE);
+	}
+
+	/**
+	 * @param defaultRate The rate in cents per night for games without a format or title rate.
+	 */
+	public PricingEngine(long defaultRate) {
+		setDefaultRate(defaultRate);
+	}
+
+	/**
+	 * @param game The game being rented.
+	 * @return The rate for the game in cents per night.
+	 */
+	public long getRate(Game game) {
+		Long titleRate = titleRates.get(game.getTitle());
+		if (titleRate != null) {
+			return titleRate;
+		}
+		long[] rates = formatRates;
+		int formatId = game.getFormatType().getId();
+		if (formatId < rates.length && rates[formatId] != UNSET) {
+			return rates[formatId];
+		}
+		return defaultRate;
+	}
+
+	/**
+	 * @param game The game being rented.
+	 * @param nights The number of nights, at least 1.
+	 * @return The price for the rental in cents.
+	 */
+	public long priceOf(Game game, int nights) {
+		if (nights < 1) {
+			throw new IllegalArgumentException("A rental is at least one night: " + nights);
+		}
+		return Math.multiplyExact(getRate(game), nights);
+	}
+
+	/**
+	 * @param cents The rate in cents per night for games without a format or title rate.
+	 */
+	public void setDefaultRate(long cents) {
+		checkRate(cents);
+		defaultRate = cents;
+	}
+
+	/**
+	 * @param format The format.
+	 * @param cents The rate in cents per night for games in that format.
+	 */
+	public synchronized void setFormatRate(Format format, long cents) {
+		checkRate(cents);
+		long[] rates = formatRates;
+		if (format.getId() >= rates.length) {
+			int oldLength = rates.length;
+			rates = Arrays.copyOf(rates, format.getId() + 1);
+			Arrays.fill(rates, oldLength, rates.length, UNSET);
+		} else {
+			rates = rates.clone();
+		}
+		rates[format.getId()] = cents;
+		formatRates = rates;
+	}
+
+	/**
+	 * @param title The game title.
+	 * @param cents The rate in cents per night for that title in any format.
+	 */
+	public void setTitleRate(String title, long cents) {
+		checkRate(cents);
+		titleRates.put(title, cents);
+	}
+
+	private static void checkRate(long cents) {
+		if (cents < 0) {
+			throw new IllegalArgumentException("Rate cannot be negative: " + cents);
+		}
+	}
+
+	/**
+	 * Loads rates from a file with one rate per line: "default,2.00", "format,P,2.50"
+	 * or "title,Some Title,3.00".
+	 * 
+	 * @param filePath The path to the rates file.
+	 */
+	public void loadFromFile(String filePath) {
+		try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				int first = line.indexOf(',');
+				int last = line.lastIndexOf(',');
+				if (first < 0) {
+					System.err.println("Invalid line format in line " + lineNumber + ": " + line);
+					continue;
+				}
+				String kind = line.substring(0, first).trim();
+				try {
+					long rate = Money.parse(line.substring(last + 1));
+					String key = first < last ? line.substring(first + 1, last).trim() : "";
+					if (kind.equals("default") && key.isEmpty()) {
+						setDefaultRate(rate);
+					} else if (kind.equals("format") && Format.fromCode(key) != null) {
+						setFormatRate(Format.fromCode(key), rate);
+					} else if (kind.equals("title") && !key.isEmpty()) {
+						setTitleRate(key, rate);
+					} else {
+						System.err.println("Invalid line format in line " + lineNumber + ": " + line);
+					}
+				} catch (IllegalArgumentException e) {
+					System.err.println("Invalid value in line " + lineNumber + ": " + line + "; Error: " + e.getMessage());
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Error reading file: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package game.model;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Renders receipts into a reusable per-thread buffer, with the fixed parts of the layout built once.
+ * Safe to call from any thread.
+ */
+public final class ReceiptRenderer {
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	private static final String DATE_LABEL = "Transaction Date: ";
+	private static final String NUMBER_LABEL = "Transaction Number: ";
+	private static final String PENDING_NUMBER = "pending";
+	private static final String HEADER = String.format("%10s %34s %11s\n", "Title", "Format", "Price")
+			+ "----------------------------------------------------------\n";
+	private static final String TOTAL_LABEL = "\nTotal ";
+	private static final int TITLE_WIDTH = 40;
+	private static final int FORMAT_WIDTH = 10;
+	private static final int TOTAL_WIDTH = 51;
+	private static final int BUFFER_LIMIT = 64 * 1024;
+	private static final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+	private ReceiptRenderer() {
+	}
+
+	/**
+	 * @param transaction The transaction to render.
+	 * @return The formatted receipt.
+	 */
+	public static String render(Transaction transaction) {
+		StringBuilder buffer = buffers.get();
+		buffer.setLength(0);
+		render(transaction, buffer);
+		String receipt = buffer.toString();
+		if (buffer.capacity() > BUFFER_LIMIT) {
+			buffers.remove(); // Don't keep an oversized buffer alive after one huge receipt
+		}
+		return receipt;
+	}
+
+	/**
+	 * @param transaction The transaction to render.
+	 * @param out The buffer to append the receipt to.
+	 */
+	public static void render(Transaction transaction, StringBuilder out) {
+		out.append(DATE_LABEL);
+		DATE_FORMAT.formatTo(Instant.ofEpochMilli(transaction.getTimestamp()).atZone(ZoneId.systemDefault()), out);
+		out.append('\n');
+		out.append(NUMBER_LABEL);
+		int number = transaction.getTransactionNumber();
+		if (number == 0) {
+			out.append(PENDING_NUMBER);
+		} else {
+			appendZeroPadded(out, number, 4);
+		}
+		out.append('\n');
+		out.append(HEADER);
+		List<Game> games = transaction.getGamesList();
+		for (int i = 0; i < games.size(); i++) {
+			Game game = games.get(i);
+			appendLeft(out, game.getTitle(), TITLE_WIDTH);
+			out.append(' ');
+			appendLeft(out, game.getFormat(), FORMAT_WIDTH);
+			out.append(' ');
+			Money.appendTo(out, transaction.getLinePrice(i));
+			int nights = transaction.getNights(i);
+			if (nights > 1) {
+				out.append(" (").append(nights).append(" nights)");
+			}
+			out.append('\n');
+		}
+		out.append(TOTAL_LABEL);
+		int start = out.length();
+		Money.appendTo(out, transaction.getTotalCents());
+		padLeft(out, start, TOTAL_WIDTH);
+	}
+
+	/**
+	 * @param out The buffer to append to.
+	 * @param text The text, left-aligned.
+	 * @param width The minimum width; longer text is not cut.
+	 */
+	private static void appendLeft(StringBuilder out, String text, int width) {
+		out.append(text);
+		for (int i = text.length(); i < width; i++) {
+			out.append(' ');
+		}
+	}
+
+	/**
+	 * Right-aligns the text appended since start.
+	 *
+	 * @param out The buffer holding the text.
+	 * @param start Where the text begins.
+	 * @param width The minimum width.
+	 */
+	private static void padLeft(StringBuilder out, int start, int width) {
+		int length = out.length() - start;
+		for (int i = length; i < width; i++) {
+			out.insert(start, ' ');
+		}
+	}
+
+	/**
+	 * @param out The buffer to append to.
+	 * @param value The number to append.
+	 * @param width The minimum number of digits.
+	 */
+	private static void appendZeroPadded(StringBuilder out, int value, int width) {
+		if (value < 0) {
+			out.append('-');
+			value = -value;
+			width--;
+		}
+		int start = out.length();
+		out.append(value);
+		for (int i = out.length() - start; i < width; i++) {
+			out.insert(start, '0');
+		}
+	}
+}
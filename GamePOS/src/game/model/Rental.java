@@ -0,0 +1,90 @@
+package game.model;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One copy out on rental: which game, which sale it went out on and when it is due back.
+ */
+public class Rental {
+	/** Orders rentals by the moment they become overdue, then by the order they went out. */
+	public static final Comparator<Rental> BY_DUE = Comparator.comparingLong(Rental::getDueAt)
+			.thenComparingLong(Rental::getId);
+	private static final AtomicLong nextId = new AtomicLong();
+
+	private final long id;
+	private final Game game;
+	private final int transactionNumber;
+	private final long rentedAt;
+	private final long dueAt;
+	private volatile long returnedAt;
+
+	/**
+	 * @param game The game rented.
+	 * @param transactionNumber The number of the sale it went out on.
+	 * @param rentedAt When it went out.
+	 * @param dueAt The moment it becomes overdue.
+	 */
+	public Rental(Game game, int transactionNumber, long rentedAt, long dueAt) {
+		this(nextId.incrementAndGet(), game, transactionNumber, rentedAt, dueAt);
+	}
+
+	private Rental(long id, Game game, int transactionNumber, long rentedAt, long dueAt) {
+		this.id = id;
+		this.game = game;
+		this.transactionNumber = transactionNumber;
+		this.rentedAt = rentedAt;
+		this.dueAt = dueAt;
+	}
+
+	/**
+	 * @param rentedAt When the copy went out.
+	 * @param nights The number of nights it is rented for.
+	 * @return The moment it becomes overdue: the end of the business day it is due back on.
+	 */
+	public static long dueAt(long rentedAt, int nights) {
+		return BusinessDay.startOf(BusinessDay.epochDayOf(rentedAt) + nights + 1);
+	}
+
+	/**
+	 * @param timestamp The moment to probe.
+	 * @return A key that sorts before every rental due at or after the timestamp.
+	 */
+	static Rental probe(long timestamp) {
+		return new Rental(Long.MIN_VALUE, null, 0, 0, timestamp);
+	}
+
+	/**
+	 * @param now The current time.
+	 * @return true if the copy is still out past its due time.
+	 */
+	public boolean isOverdue(long now) {
+		return returnedAt == 0 && now >= dueAt;
+	}
+
+	void markReturned(long timestamp) {
+		returnedAt = timestamp;
+	}
+
+	public long getId() {
+		return id;
+	}
+	public Game getGame() {
+		return game;
+	}
+	public int getTransactionNumber() {
+		return transactionNumber;
+	}
+	public long getRentedAt() {
+		return rentedAt;
+	}
+	public long getDueAt() {
+		return dueAt;
+	}
+	/**
+	 * @return When the copy came back, or 0 while it is still out.
+	 */
+	public long getReturnedAt() {
+		return returnedAt;
+	}
+}
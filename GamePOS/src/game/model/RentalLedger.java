@@ -0,0 +1,99 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The copies out on rental, indexed by due time. Overdue and due-today queries walk only
+ * the matching end of the index, so they cost time in proportion to what they return
+ * rather than to everything out on rental.
+ */
+public class RentalLedger {
+	private final ConcurrentSkipListSet<Rental> byDue = new ConcurrentSkipListSet<>(Rental.BY_DUE);
+	// Per game, so a return finds the copy due back soonest without a scan
+	private final Map<Game, ConcurrentSkipListSet<Rental>> byGame = new ConcurrentHashMap<>();
+
+	/**
+	 * Opens a rental for every line of a completed sale.
+	 * 
+	 * @param transaction The completed sale.
+	 */
+	public void open(Transaction transaction) {
+		List<Game> games = transaction.getGamesList();
+		for (int i = 0; i < games.size(); i++) {
+			add(new Rental(games.get(i), transaction.getTransactionNumber(), transaction.getTimestamp(),
+					Rental.dueAt(transaction.getTimestamp(), transaction.getNights(i))));
+		}
+	}
+
+	/**
+	 * @param rental A rental that is out, e.g. one read back from a snapshot.
+	 */
+	public void add(Rental rental) {
+		byGame.computeIfAbsent(rental.getGame(), game -> new ConcurrentSkipListSet<>(Rental.BY_DUE)).add(rental);
+		byDue.add(rental);
+	}
+
+	/**
+	 * Closes the rental of the copy of this game that is due back soonest. Replaying the
+	 * same returns in the same order therefore closes the same rentals.
+	 * 
+	 * @param game The game handed back.
+	 * @param timestamp When it came back.
+	 * @return The closed rental, or null if no copy of the game was out.
+	 */
+	public Rental close(Game game, long timestamp) {
+		ConcurrentSkipListSet<Rental> out = byGame.get(game);
+		Rental rental = out != null ? out.pollFirst() : null;
+		if (rental != null) {
+			byDue.remove(rental);
+			rental.markReturned(timestamp);
+		}
+		return rental;
+	}
+
+	/**
+	 * @param now The current time.
+	 * @return The rentals overdue at that time, most overdue first.
+	 */
+	public List<Rental> getOverdue(long now) {
+		return new ArrayList<>(byDue.headSet(Rental.probe(now + 1)));
+	}
+
+	/**
+	 * @param now The current time.
+	 * @return The rentals due back later today and not yet overdue, soonest first.
+	 */
+	public List<Rental> getDueToday(long now) {
+		long endOfToday = BusinessDay.startOf(BusinessDay.epochDayOf(now) + 1);
+		return new ArrayList<>(byDue.subSet(Rental.probe(now + 1), Rental.probe(endOfToday + 1)));
+	}
+
+	/**
+	 * @param game The game.
+	 * @return The copies of the game out on rental, due soonest first.
+	 */
+	public List<Rental> getOutstanding(Game game) {
+		NavigableSet<Rental> out = byGame.get(game);
+		return out != null ? new ArrayList<>(out) : Collections.emptyList();
+	}
+
+	/**
+	 * @return Every rental still out, due soonest first.
+	 */
+	public List<Rental> getOutstanding() {
+		return new ArrayList<>(byDue);
+	}
+
+	/**
+	 * @return The number of copies out on rental.
+	 */
+	public int size() {
+		return byDue.size();
+	}
+}
@@ -0,0 +1,117 @@
+package game.model;
+
+/**
+ * A cart's hold on the copies in it. Adding a game takes a copy out of stock at once, so
+ * other terminals never sell it, but the hold lapses if the cart is left alone for too
+ * long and the sweeper puts the copies back. Committing turns every held copy into a
+ * rental in one step, so a cart is either sold whole or released whole.
+ */
+public class Reservation {
+	public enum State { HELD, COMMITTED, RELEASED, EXPIRED }
+
+	private final Transaction transaction = new Transaction();
+	private final long holdMillis;
+	private volatile State state = State.HELD;
+	private volatile long deadline;
+
+	/**
+	 * @param holdMillis How long the cart may sit untouched before its copies go back.
+	 */
+	Reservation(long holdMillis) {
+		this.holdMillis = holdMillis;
+		this.deadline = Long.MAX_VALUE; // An empty cart holds nothing, so it never lapses
+	}
+
+	/**
+	 * Holds a copy of the game and adds it to the cart, starting the hold timer on the
+	 * first game and restarting it on every later one.
+	 * 
+	 * @param game The game to hold.
+	 * @param nights The number of nights it is rented for.
+	 * @param priceCents The price of the line in cents.
+	 * @return false if the game is sold out or the hold has already lapsed.
+	 */
+	public synchronized boolean hold(Game game, int nights, long priceCents) {
+		if (state != State.HELD || !game.rentGame()) {
+			return false;
+		}
+		transaction.addGame(game, nights, priceCents);
+		deadline = System.currentTimeMillis() + holdMillis;
+		return true;
+	}
+
+	/**
+	 * Puts every held copy back in stock.
+	 * 
+	 * @return false if the cart was already committed, released or expired.
+	 */
+	public synchronized boolean release() {
+		return close(State.RELEASED);
+	}
+
+	/**
+	 * Puts the copies back if the hold has lapsed.
+	 * 
+	 * @param now The current time.
+	 * @return true if the hold expired on this call.
+	 */
+	synchronized boolean expireIfDue(long now) {
+		return now >= deadline && close(State.EXPIRED);
+	}
+
+	private boolean close(State newState) {
+		if (state != State.HELD) {
+			return false;
+		}
+		state = newState;
+		for (Game game : transaction.getGamesList()) {
+			game.returnGame();
+		}
+		return true;
+	}
+
+	/**
+	 * Marks the held copies as sold and hands the sale to the store, all while the sweeper
+	 * is held off. If the store cannot record the sale the hold stays in place.
+	 * 
+	 * @param commit Records the sale, e.g. by journaling it.
+	 * @throws IllegalStateException If the hold has lapsed or the cart was already closed.
+	 */
+	synchronized void commit(Runnable commit) {
+		if (state != State.HELD) {
+			throw new IllegalStateException("The cart's hold has " + state.name().toLowerCase() + "; please add the games again");
+		}
+		transaction.stamp(System.currentTimeMillis()); // The sale happens now, not when the cart was opened
+		commit.run();
+		state = State.COMMITTED;
+	}
+
+	/**
+	 * @return The sale being built from the held copies.
+	 */
+	public Transaction getTransaction() {
+		return transaction;
+	}
+	public State getState() {
+		return state;
+	}
+	/**
+	 * @return true while the cart still holds its copies.
+	 */
+	public boolean isOpen() {
+		return state == State.HELD;
+	}
+	/**
+	 * @return true if the hold lapsed with games in the cart, which went back in stock.
+	 */
+	public boolean isExpiredWithGames() {
+		return state == State.EXPIRED && !transaction.getGamesList().isEmpty();
+	}
+	/**
+	 * @return When the hold lapses unless more games are added, or Long.MAX_VALUE while
+	 *         the cart is empty.
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+}
@@ -0,0 +1,117 @@
+package game.model;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the open carts of every terminal and expires the ones left alone too long.
+ * Each cart locks only itself, so terminals never wait on each other.
+ */
+public class Reservations {
+	public static final long DEFAULT_HOLD_MILLIS = TimeUnit.MINUTES.toMillis(15);
+	private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+	private final long holdMillis;
+	private final Set<Reservation> open = ConcurrentHashMap.newKeySet();
+	private volatile ScheduledExecutorService sweeper;
+
+	public Reservations() {
+		this(DEFAULT_HOLD_MILLIS);
+	}
+
+	/**
+	 * @param holdMillis How long a cart may sit untouched before its copies go back.
+	 */
+	public Reservations(long holdMillis) {
+		this.holdMillis = holdMillis;
+	}
+
+	/**
+	 * @return A new, empty cart.
+	 */
+	public Reservation open() {
+		if (sweeper == null) {
+			startSweeper();
+		}
+		Reservation reservation = new Reservation(holdMillis);
+		open.add(reservation);
+		return reservation;
+	}
+
+	/**
+	 * Commits a cart's sale.
+	 * 
+	 * @param reservation The cart to commit.
+	 * @param commit Records the sale.
+	 * @throws IllegalStateException If the cart's hold has lapsed.
+	 */
+	void commit(Reservation reservation, Runnable commit) {
+		reservation.commit(commit);
+		open.remove(reservation);
+	}
+
+	/**
+	 * @param reservation The cart to give up; its copies go back in stock.
+	 */
+	public void release(Reservation reservation) {
+		reservation.release();
+		open.remove(reservation);
+	}
+
+	/**
+	 * Returns the copies of every cart whose hold has lapsed.
+	 * 
+	 * @return The number of carts expired.
+	 */
+	public int sweep() {
+		long now = System.currentTimeMillis();
+		int expired = 0;
+		for (Reservation reservation : open) {
+			if (reservation.expireIfDue(now)) {
+				expired++;
+			}
+			if (!reservation.isOpen()) {
+				open.remove(reservation);
+			}
+		}
+		return expired;
+	}
+
+	/**
+	 * @return The number of carts still holding copies.
+	 */
+	public int size() {
+		return open.size();
+	}
+
+	private synchronized void startSweeper() {
+		if (sweeper != null) {
+			return;
+		}
+		sweeper = Executors.newSingleThreadScheduledExecutor(work -> {
+			Thread thread = new Thread(work, "reservation-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(() -> {
+			try {
+				sweep();
+			} catch (RuntimeException e) {
+				e.printStackTrace(); // Keep sweeping; an uncaught exception would cancel the schedule
+			}
+		}, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the sweeper. Carts still open keep their copies.
+	 */
+	public synchronized void close() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+			sweeper = null;
+		}
+	}
+}
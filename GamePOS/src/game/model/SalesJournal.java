@@ -0,0 +1,25 @@
+package game.model;
+
+/**
+ * Durable record of the changes a {@link Store} makes, written before the change is
+ * applied in memory so it can be replayed after a crash.
+ */
+public interface SalesJournal {
+
+	/**
+	 * @param transaction The completed transaction.
+	 */
+	void recordSale(Transaction transaction);
+
+	/**
+	 * @param title The title of the game.
+	 * @param format The format of the game.
+	 * @param delta The number of copies added, or removed if negative.
+	 */
+	void recordInventoryDelta(String title, String format, int delta);
+
+	/**
+	 * @return The journal offset just past the last record written.
+	 */
+	long position();
+}
@@ -0,0 +1,167 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from primitive SKU keys to values. Lookups are lock-free and
+ * allocate nothing; writes are serialized, which suits an inventory that is read on
+ * every checkout but only restructured when stock is loaded.
+ * 
+ * @param <V> The value type.
+ */
+public class SkuMap<V> {
+	private static final long EMPTY = -1L;
+
+	private volatile Table<V> table = new Table<>(16);
+	private int slotsUsed;
+	private volatile int size;
+
+	/**
+	 * @param key A non-negative SKU key.
+	 * @return The value for the key, or null if there is none.
+	 */
+	public V get(long key) {
+		if (key < 0) {
+			return null;
+		}
+		Table<V> t = table;
+		int mask = t.keys.length() - 1;
+		for (int i = index(key, mask); ; i = (i + 1) & mask) {
+			long k = t.keys.get(i);
+			if (k == key) {
+				return t.values.get(i);
+			}
+			if (k == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @param key A non-negative SKU key.
+	 * @param value The value to store.
+	 * @return The previous value for the key, or null if there was none.
+	 */
+	public synchronized V put(long key, V value) {
+		Table<V> t = table;
+		int mask = t.keys.length() - 1;
+		int i = index(key, mask);
+		for (long k; (k = t.keys.get(i)) != EMPTY; i = (i + 1) & mask) {
+			if (k == key) {
+				V previous = t.values.getAndSet(i, value);
+				if (previous == null) {
+					size++;
+				}
+				return previous;
+			}
+		}
+		// Publish the value before the key, so a reader that finds the key sees the value
+		t.values.set(i, value);
+		t.keys.set(i, key);
+		size++;
+		if (++slotsUsed * 4 >= t.keys.length() * 3) {
+			resize();
+		}
+		return null;
+	}
+
+	/**
+	 * @param key A non-negative SKU key.
+	 * @return The removed value, or null if there was none.
+	 */
+	public synchronized V remove(long key) {
+		Table<V> t = table;
+		int mask = t.keys.length() - 1;
+		for (int i = index(key, mask); ; i = (i + 1) & mask) {
+			long k = t.keys.get(i);
+			if (k == key) {
+				// The key stays behind as a tombstone so later probes keep going
+				V previous = t.values.getAndSet(i, null);
+				if (previous != null) {
+					size--;
+				}
+				return previous;
+			}
+			if (k == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @return The number of keys with a value.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param action Called for every value.
+	 */
+	public void forEach(Consumer<? super V> action) {
+		AtomicReferenceArray<V> values = table.values;
+		for (int i = 0; i < values.length(); i++) {
+			V value = values.get(i);
+			if (value != null) {
+				action.accept(value);
+			}
+		}
+	}
+
+	/**
+	 * @return A copy of the values.
+	 */
+	public List<V> values() {
+		List<V> values = new ArrayList<>(size);
+		forEach(values::add);
+		return values;
+	}
+
+	private void resize() {
+		Table<V> old = table;
+		int capacity = old.keys.length();
+		if (size * 2 >= capacity) {
+			capacity *= 2; // Otherwise mostly tombstones, so rebuild at the same size
+		}
+		Table<V> resized = new Table<>(capacity);
+		int mask = capacity - 1;
+		int used = 0;
+		for (int i = 0; i < old.keys.length(); i++) {
+			V value = old.values.get(i);
+			if (value != null) {
+				long key = old.keys.get(i);
+				int j = index(key, mask);
+				while (resized.keys.get(j) != EMPTY) {
+					j = (j + 1) & mask;
+				}
+				resized.values.set(j, value);
+				resized.keys.set(j, key);
+				used++;
+			}
+		}
+		slotsUsed = used;
+		table = resized;
+	}
+
+	private static int index(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private static class Table<V> {
+		private final AtomicLongArray keys;
+		private final AtomicReferenceArray<V> values;
+
+		Table(int capacity) {
+			keys = new AtomicLongArray(capacity);
+			values = new AtomicReferenceArray<>(capacity);
+			for (int i = 0; i < capacity; i++) {
+				keys.set(i, EMPTY);
+			}
+		}
+	}
+}
@@ -1,103 +1,522 @@
 package game.model;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.time.Instant;
+import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
+import game.metrics.Metrics;
+import game.metrics.Timer;
+
 public class Store {
-    private static final Double PRICE_PER_NIGHT = 2.00;
-	private Map<String, Game> inventory;
-    private List<Transaction> transactions;
+    private static final Timer checkoutTimer = Metrics.timer("store.checkout");
+    private static final Timer returnTimer = Metrics.timer("store.return");
+    private static final Timer searchTimer = Metrics.timer("store.search");
+    private static final Timer loadTimer = Metrics.timer("store.loadInventory");
+	private final SkuMap<Game> inventory;
+    // Games taken out of the inventory, kept so older records of them still resolve
+    private final SkuMap<Game> retired = new SkuMap<>();
+    private final TitleRegistry titles;
+    private volatile TitleSearchIndex searchIndex;
+    private final AvailabilityViews availability;
+    private final TransactionHistory transactions;
+    private final ConcurrentSkipListMap<Long, DailySales> dailySales;
+    private volatile DailySales currentDay;
+    private SalesJournal journal;
+    private final PricingEngine pricing = new PricingEngine();
+    private final TransactionNumbers numbers = new TransactionNumbers();
+    // Numbers sales committed without a terminal of their own
+    private final TransactionNumbers.Terminal defaultTerminal = numbers.newTerminal();
+    private final Reservations reservations = new Reservations();
+    private final RentalLedger rentals = new RentalLedger();
+    private final List<ObjIntConsumer<Game>> stockListeners = new CopyOnWriteArrayList<>();
+    // Journaled changes share the read side; a snapshot takes the write side to see a consistent state
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
 
     public Store() {
-        inventory = new HashMap<>();
-        transactions = new ArrayList<>();
+        inventory = new SkuMap<>();
+        titles = new TitleRegistry();
+        searchIndex = new TitleSearchIndex(Collections.emptyList());
+        availability = new AvailabilityViews();
+        // -Dpos.archiveOffHeap=true keeps frozen days of sales outside the Java heap
+        transactions = new TransactionHistory(titles, Boolean.getBoolean("pos.archiveOffHeap"));
+        dailySales = new ConcurrentSkipListMap<>();
     }
 
+    /**
+     * @return The rates new rentals are priced with.
+     */
+    public PricingEngine getPricing() {
+        return pricing;
+    }
+    /**
+     * @param journal The journal completed sales and inventory changes are written to,
+     *                or null to keep them in memory only.
+     */
+    public void setJournal(SalesJournal journal) {
+        this.journal = journal;
+    }
+    /**
+     * @return A source of transaction numbers for one till.
+     */
+    public TransactionNumbers.Terminal newTerminal() {
+        return numbers.newTerminal();
+    }
+    /**
+     * @return The copies out on rental, by due date.
+     */
+    public RentalLedger getRentals() {
+        return rentals;
+    }
+    /**
+     * @return The rentals past their due time, most overdue first.
+     */
+    public List<Rental> getOverdueRentals() {
+        return rentals.getOverdue(System.currentTimeMillis());
+    }
+    /**
+     * @return The rentals due back before the end of today, soonest first.
+     */
+    public List<Rental> getRentalsDueToday() {
+        return rentals.getDueToday(System.currentTimeMillis());
+    }
+    /**
+     * @return The open carts and their holds on stock.
+     */
+    public Reservations getReservations() {
+        return reservations;
+    }
+    /**
+     * @param reservation The cart to check out.
+     * @return The completed sale.
+     * @throws IllegalStateException If the cart's hold has lapsed.
+     */
+    public Transaction commitReservation(Reservation reservation) {
+        return commitReservation(reservation, defaultTerminal);
+    }
+    /**
+     * Sells every copy held by a cart in one step.
+     * 
+     * @param reservation The cart to check out.
+     * @param terminal The terminal that numbers the sale.
+     * @return The completed sale.
+     * @throws IllegalStateException If the cart's hold has lapsed.
+     */
+    public Transaction commitReservation(Reservation reservation, TransactionNumbers.Terminal terminal) {
+        reservations.commit(reservation, () -> addCompletedTransaction(reservation.getTransaction(), terminal));
+        return reservation.getTransaction();
+    }
     /**
      * @param transaction The transaction to be added.
      */
     public void addCompletedTransaction(Transaction transaction) {
+        addCompletedTransaction(transaction, defaultTerminal);
+    }
+    /**
+     * Commits a sale, giving it the next number from the till it was rung up on.
+     * 
+     * @param transaction The transaction to be added.
+     * @param terminal The terminal that numbers the sale.
+     */
+    public void addCompletedTransaction(Transaction transaction, TransactionNumbers.Terminal terminal) {
+        long start = checkoutTimer.start();
+        boolean done = false;
+        stateLock.readLock().lock();
+        try {
+            if (transaction.getTransactionNumber() == 0) {
+                transaction.assignNumber(terminal.next()); // Kept if journaling fails and the sale is retried
+            }
+            if (journal != null) {
+                journal.recordSale(transaction);
+            }
+            applyCompletedTransaction(transaction);
+            done = true;
+        } finally {
+            stateLock.readLock().unlock();
+            if (done) {
+                checkoutTimer.stop(start);
+            } else {
+                checkoutTimer.fail(start);
+            }
+        }
+    }
+    /**
+     * Re-applies a sale read back from the journal. The copies it rented are taken out
+     * of the inventory again, since the journal replays on top of the inventory file.
+     * 
+     * @param transaction The transaction to be restored.
+     */
+    public void restoreCompletedTransaction(Transaction transaction) {
+        numbers.observe(transaction.getTransactionNumber());
+        for (Game game : transaction.getGamesList()) {
+            if (!game.rentGame()) {
+                // The copy is still out, but the file now lists fewer copies; it is owed back instead
+                if (getGame(game.getTitle(), game.getFormat()) == game) {
+                    System.err.println("Sale " + transaction.getTransactionNumber() + " rented more copies of "
+                            + game.getTitle() + " (" + game.getFormat() + ") than are listed");
+                }
+                game.addCopies(-1);
+            }
+        }
+        applyCompletedTransaction(transaction);
+    }
+    /**
+     * @param transaction The transaction to add to the history and daily counters.
+     */
+    private void applyCompletedTransaction(Transaction transaction) {
+        for (Game game : transaction.getGamesList()) {
+            game.addCopiesRentedOut(1);
+        }
     	transactions.add(transaction);
+    	rentals.open(transaction);
+    	salesFor(transaction.getTimestamp()).record(transaction);
     }
     /**
-     * @param filePath The path to the file containing inventory data.
+     * @param timestamp The timestamp of a sale.
+     * @return The running counters for the business day the timestamp falls on.
+     */
+    private DailySales salesFor(long timestamp) {
+        DailySales day = currentDay;
+        if (day != null && day.contains(timestamp)) {
+            return day;
+        }
+        DailySales sales = dailySales.computeIfAbsent(BusinessDay.epochDayOf(timestamp), DailySales::new);
+        if (day == null || sales.getEpochDay() > day.getEpochDay()) {
+            currentDay = sales; // Midnight rollover
+        }
+        return sales;
+    }
+    /**
+     * @return The running counters for the current business day.
+     */
+    public DailySales getTodaysSales() {
+        return salesFor(System.currentTimeMillis());
+    }
+    /**
+     * Takes back a rented copy from a customer.
+     * 
+     * @param title The title of the game.
+     * @param format The format of the game.
      */
     public void returnGame(String title, String format) {
-        Game game = inventory.get(title + format);
+        Game game = findGame(title, format);
+        if (game == null) {
+            return;
+        }
+        long start = returnTimer.start();
+        stateLock.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.recordInventoryDelta(title, format, 1);
+            }
+            game.returnGame();
+            game.addCopiesRentedOut(-1);
+            rentals.close(game, System.currentTimeMillis());
+        } finally {
+            stateLock.readLock().unlock();
+            returnTimer.stop(start);
+        }
+    }
+    /**
+     * Puts back a copy held by a cart that was never paid for. Nothing is journaled,
+     * because the copy only leaves the journaled stock once the sale completes.
+     * 
+     * @param title The title of the game.
+     * @param format The format of the game.
+     */
+    public void releaseGame(String title, String format) {
+        Game game = inventory.get(skuOf(title, format));
         if (game != null) {
             game.returnGame();
         }
     }
+    /**
+     * Re-applies an inventory change read back from the journal.
+     * 
+     * @param title The title of the game.
+     * @param format The format of the game.
+     * @param delta The number of copies back from rental, or out on rental if negative.
+     */
+    public void restoreInventoryDelta(String title, String format, int delta) {
+        Game game = getGameForRecord(title, format);
+        if (game != null) {
+            game.addCopies(delta); // Copies owed are paid off first, as a live return does
+            game.addCopiesRentedOut(-delta);
+            for (int i = 0; i < delta; i++) {
+                rentals.close(game, System.currentTimeMillis());
+            }
+        }
+    }
+    /**
+     * Captures the state a snapshot needs. Journaled changes are held off while the copy
+     * is taken, so the state matches the journal position exactly.
+     * 
+     * @return The copied state.
+     */
+    public StoreState captureState() {
+        stateLock.writeLock().lock();
+        try {
+            StoreState state = new StoreState(journal != null ? journal.position() : 0,
+                    numbers.getHighWaterMark(), this::getTitleOfSku);
+            for (SkuMap<Game> games : List.of(inventory, retired)) {
+                for (Game game : games.values()) {
+                    if (game.getCopiesRentedOut() != 0) {
+                        state.getRentalCounts().add(new StoreState.RentalCount(
+                                game.getTitle(), game.getFormat(), game.getCopiesRentedOut()));
+                    }
+                }
+            }
+            for (DailySales sales : dailySales.values()) {
+                // Copied here: the live counters keep moving once the lock is released
+                state.getDailySales().add(new StoreState.DayTotals(sales));
+            }
+            // The whole history: the journal behind the snapshot is compacted away
+            transactions.copyTo(state.getFrozenDays(), state.getTransactions());
+            state.getRentals().addAll(rentals.getOutstanding());
+            return state;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+    /**
+     * Applies a snapshot on top of a freshly loaded inventory file.
+     * 
+     * @param state The state read from a snapshot.
+     */
+    public void restoreState(StoreState state) {
+        for (StoreState.RentalCount count : state.getRentalCounts()) {
+            Game game = getGameForRecord(count.getTitle(), count.getFormat());
+            if (game != null) {
+                // Copies out beyond those the file lists are owed back rather than taken below zero
+                game.addCopies(-count.getCopiesRentedOut());
+                game.addCopiesRentedOut(count.getCopiesRentedOut());
+            }
+        }
+        for (StoreState.DayTotals totals : state.getDailySales()) {
+            DailySales sales = new DailySales(totals.getEpochDay());
+            sales.restore(totals.getGamesSold(), totals.getTotalSales());
+            FormatBreakdown byFormat = totals.getSalesByFormat();
+            for (Format format : Format.values()) {
+                if (byFormat.getGamesSold(format) != 0 || byFormat.getSales(format) != 0) {
+                    sales.restoreFormat(format, byFormat.getGamesSold(format), byFormat.getSales(format));
+                }
+            }
+            dailySales.put(sales.getEpochDay(), sales);
+        }
+        currentDay = null;
+        for (TransactionArchive day : state.getFrozenDays()) {
+            transactions.restoreFrozenDay(day);
+        }
+        for (Transaction transaction : state.getTransactions()) {
+            transactions.add(transaction);
+        }
+        for (Rental rental : state.getRentals()) {
+            rentals.add(rental);
+        }
+        numbers.observe(state.getTransactionHighWaterMark());
+    }
 
+    /**
+     * @param filePath The path to the file containing inventory data.
+     */
     public void loadInventoryFromFile(String filePath) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 3) {
-                    try {
-                        int numberOfCopies = Integer.parseInt(parts[0].trim());
-                        if (numberOfCopies < 1) {
-                            throw new IllegalArgumentException("Number of copies less than 1");
-                        }
-                        String format = parts[1].trim();
-                        if (!isValidFormat(format)) {
-                            throw new IllegalArgumentException("Unknown format: " + format);
-                        }
-                        String title = parts[2].trim();
-                        Game game = new Game(title, format, numberOfCopies);
-                        inventory.put(title + format, game);
-                    } catch (NumberFormatException e) {
-                        System.err.println("Invalid number format in line: " + line + "; Error: " + e.getMessage());
-                    } catch (IllegalArgumentException e) {
-                        System.err.println("Invalid value in line: " + line + "; Error: " + e.getMessage());
+        loadInventoryFromFile(filePath, true);
+    }
+    /**
+     * @param filePath The path to the file containing inventory data.
+     * @param parallel Whether a large file may be parsed across several cores.
+     */
+    public void loadInventoryFromFile(String filePath, boolean parallel) {
+        long start = loadTimer.start();
+        try {
+            new InventoryLoader(this::isValidFormat).load(Paths.get(filePath), parallel,
+                    this::addGame);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            loadTimer.fail(start);
+            rebuildSearchIndex();
+            return;
+        }
+        rebuildSearchIndex();
+        loadTimer.stop(start);
+    }
+    /**
+     * Applies the changes found in an edited inventory file while sales go on. Each game's
+     * available copies move by the change in copies owned, so copies out on rental or held
+     * in carts are left alone. The changes share the lock a sale takes, so a snapshot sees
+     * either none or all of them.
+     * 
+     * @param changes The games whose copies changed, each carrying the change as its
+     *                number of copies. A game not yet stocked is added as given.
+     * @param delisted The games no longer in the file, each carrying minus the copies it
+     *                 had. One with no copy out is taken out of the inventory at once;
+     *                 otherwise it stays, with no copies available, until its last copy
+     *                 out on rental or held in a cart comes back.
+     */
+    void applyInventoryChanges(List<Game> changes, List<Game> delisted) {
+        stateLock.readLock().lock();
+        try {
+            for (Game change : changes) {
+                Game game = getGame(change.getTitle(), change.getFormat());
+                if (game == null) {
+                    Game previous = retired.remove(skuOf(change.getTitle(), change.getFormat()));
+                    if (previous != null) {
+                        // Listed again; its copies still out come back to the same game
+                        addGame(previous);
+                        previous.addCopies(change.getNumberOfCopies());
+                    } else {
+                        addGame(change);
                     }
+                    searchIndex.add(change.getTitle());
                 } else {
-                    System.err.println("Invalid line format: " + line);
+                    game.setWithdrawnListener(null); // Listed again before its last copy came back
+                    game.addCopies(change.getNumberOfCopies());
                 }
             }
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
+            for (Game change : delisted) {
+                Game game = inventory.get(skuOf(change.getTitle(), change.getFormat()));
+                if (game != null) {
+                    game.setWithdrawnListener(this::removeDelisted);
+                    game.addCopies(change.getNumberOfCopies());
+                }
+            }
+        } finally {
+            stateLock.readLock().unlock();
         }
     }
-
     /**
-     * @return A map where the key is the game format and the value is an array of two Doubles
-     *         (first element is the number of games sold, second is the total sales value).
+     * Takes a delisted game out of the inventory once none of its copies are out.
+     * 
+     * @param game The delisted game whose last withdrawn copy has come back.
      */
-    public Map<String, Double[]> calculateDailySalesByFormat() {
-        Map<String, Double[]> salesByFormat = new HashMap<>();
-
-        for (Transaction transaction : transactions) {
-            if (isToday(transaction.getTimestamp())) {
-                for (Game game : transaction.getGamesList()) {
-                    String format = game.getFormat();
-                    Double[] salesData = salesByFormat.getOrDefault(format, new Double[]{0.0, 0.0});
-
-                    salesData[0]++; // Increment the number of games sold
-                    salesData[1] += PRICE_PER_NIGHT; // Add to the total sales value
-
-                    salesByFormat.put(format, salesData);
+    private void removeDelisted(Game game) {
+        long sku = skuOf(game.getTitle(), game.getFormat());
+        stateLock.readLock().lock();
+        try {
+            if (inventory.get(sku) != game || game.getNumberOfCopies() != 0 || game.getCopiesOwed() != 0) {
+                return;
+            }
+            inventory.remove(sku);
+            retired.put(sku, game);
+            game.setAvailabilityListener(null);
+            game.setStockListener(null);
+            game.setWithdrawnListener(null);
+            availability.remove(game);
+            if (!isStocked(game.getTitle())) {
+                searchIndex.remove(game.getTitle());
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+    /**
+     * @param title A title.
+     * @return true if the title is stocked in any format.
+     */
+    private boolean isStocked(String title) {
+        for (int f = 0; f < Format.count(); f++) {
+            if (getGame(title, Format.fromId(f).getCode()) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Re-indexes the stocked titles. Called once per inventory load rather than per game;
+     * edits while the store is open update the index title by title instead.
+     */
+    private void rebuildSearchIndex() {
+        Set<String> stockedTitles = new HashSet<>();
+        inventory.forEach(game -> stockedTitles.add(game.getTitle()));
+        searchIndex = new TitleSearchIndex(stockedTitles);
+    }
+    /**
+     * @param text The text to look for anywhere in a title, ignoring case.
+     * @param format The format letter to filter by. If null or empty, all formats are searched.
+     * @return The matching games with copies available, sorted by title.
+     */
+    public List<Game> searchGames(String text, String format) {
+        long start = searchTimer.start();
+        Format onlyFormat = format == null || format.isEmpty() ? null : Format.fromCode(format);
+        List<Game> result = new ArrayList<>();
+        for (String title : searchIndex.search(text)) {
+            int titleId = titles.idOf(title);
+            for (int f = 0; f < Format.count(); f++) {
+                Format candidate = Format.fromId(f);
+                if (onlyFormat != null && candidate != onlyFormat) {
+                    continue;
+                }
+                Game game = inventory.get(TitleRegistry.skuKey(titleId, candidate));
+                if (game != null && game.getNumberOfCopies() > 0) {
+                    result.add(game);
                 }
             }
         }
-        return salesByFormat;
+        searchTimer.stop(start);
+        return result;
+    }
+
+    /**
+     * @param game The game to stock, replacing any game with the same title and format.
+     */
+    private void addGame(Game game) {
+        Game previous = inventory.put(TitleRegistry.skuKey(titles.intern(game.getTitle()), game.getFormatType()), game);
+        if (previous != null && previous != game) {
+            previous.setAvailabilityListener(null);
+            previous.setStockListener(null);
+            availability.remove(previous);
+        }
+        game.setAvailabilityListener(availability::update);
+        game.setStockListener(this::stockChanged);
+        availability.update(game);
+        stockChanged(game, game.getNumberOfCopies() - (previous != null && previous != game ? previous.getNumberOfCopies() : 0));
+    }
+    /**
+     * @param game The game whose stock changed.
+     * @param delta The change in available copies.
+     */
+    private void stockChanged(Game game, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (ObjIntConsumer<Game> listener : stockListeners) {
+            listener.accept(game, delta);
+        }
+    }
+    /**
+     * @param title The title of the game.
+     * @param format The format letter of the game.
+     * @return The SKU key, or -1 if no game with that title and format was ever stocked.
+     */
+    private long skuOf(String title, String format) {
+        int titleId = titles.idOf(title);
+        Format f = Format.fromCode(format);
+        return titleId < 0 || f == null ? -1 : TitleRegistry.skuKey(titleId, f);
+    }
+
+    /**
+     * @return Today's games sold and sales value per format.
+     */
+    public FormatBreakdown calculateDailySalesByFormat() {
+        return getTodaysSales().getSalesByFormat();
     } 
     /**
      * @param format The format to be validated.
      * @return true if the format is valid, otherwise false.
      */
     private boolean isValidFormat(String format) {
-        return format.equals("P") || format.equals("X") || format.equals("N");
+        return Format.fromCode(format) != null;
     }
     /**
      * @param title The title of the game.
@@ -105,7 +524,40 @@ public class Store {
      * @return The Game object if found, otherwise null.
      */
     public Game getGame(String title, String format) {
-        return inventory.get(title + format);
+        return inventory.get(skuOf(title, format));
+    }
+    /**
+     * Finds the game a journal or snapshot record refers to. A game no longer in the
+     * inventory resolves to a retired game with no stock, so its sales keep their revenue
+     * and copies of it still out can come back.
+     * 
+     * @param title The title of the game.
+     * @param format The format code of the game.
+     * @return The game, or null if the format is unknown.
+     */
+    public Game getGameForRecord(String title, String format) {
+        Game game = findGame(title, format);
+        Format type = Format.fromCode(format);
+        if (game != null || type == null) {
+            return game;
+        }
+        long sku = getSkuOf(title, type);
+        synchronized (retired) {
+            game = retired.get(sku);
+            if (game == null) {
+                game = new Game(title, format, 0);
+                retired.put(sku, game);
+            }
+        }
+        return game;
+    }
+    /**
+     * @return The stocked game, or else the retired one, or null if there is neither.
+     */
+    private Game findGame(String title, String format) {
+        long sku = skuOf(title, format);
+        Game game = inventory.get(sku);
+        return game != null ? game : retired.get(sku);
     }
     /**
      * @return A list of unique formats available.
@@ -119,38 +571,124 @@ public class Store {
 
     /**
      * @param format The format to filter by. If null, all games are returned.
-     * @return A list of games matching the specified format.
+     * @return A list of games matching the specified format, sorted by title.
      */
     public List<Game> getAvailableGames(String format) {
-        return inventory.values().stream()
-                .filter(game -> format == null || game.getFormat().equals(format))
-                .filter(game -> game.getNumberOfCopies() > 0)
-                .collect(Collectors.toList());
+        return new ArrayList<>(getAvailableView(format));
     }
     /**
-     * @return A list of all transactions.
+     * @param listener Called on the changing thread whenever a game sells out, comes back,
+     *                 or is taken out of the inventory.
+     */
+    public void addAvailabilityListener(Consumer<Game> listener) {
+        availability.addListener(listener);
+    }
+    /**
+     * @param listener Called on the changing thread with the game and the change in
+     *                 available copies, for every rental, return, hold and restock.
+     */
+    public void addStockListener(ObjIntConsumer<Game> listener) {
+        stockListeners.add(listener);
+    }
+    /**
+     * @return Every stocked game, including sold-out ones, in no particular order.
+     */
+    public List<Game> getAllGames() {
+        return inventory.values();
+    }
+    /**
+     * @param format The format to filter by. If null or unknown, all games are returned.
+     * @return A live, read-only view of the games with copies available, sorted by title.
+     *         It is kept up to date as games sell out and come back.
+     */
+    public NavigableSet<Game> getAvailableView(String format) {
+        return availability.get(format == null ? null : Format.fromCode(format));
+    }
+    /**
+     * @return A read-only list of all retained transactions, oldest first.
      */
     public List<Transaction> getTransactionHistory() {
-        return transactions;
+        return transactions.getAll();
     }
     /**
-     * @return The total sales amount for the day.
+     * @param from The first timestamp to include, in epoch milliseconds.
+     * @param to The timestamp to stop before, in epoch milliseconds.
+     * @return A read-only list of the transactions in the range, oldest first.
+     */
+    public List<Transaction> getTransactionHistory(long from, long to) {
+        return transactions.getRange(from, to);
+    }
+    /**
+     * @param date The business day to fetch.
+     * @return A read-only list of that day's transactions, oldest first.
+     */
+    public List<Transaction> getTransactionHistory(LocalDate date) {
+        return transactions.getDay(date.toEpochDay());
+    }
+    /**
+     * @return A read-only list of today's transactions, oldest first.
+     */
+    public List<Transaction> getTodaysTransactions() {
+        return transactions.getDay(BusinessDay.today());
+    }
+    /**
+     * @param days The number of business days to include, counting today.
+     * @return A read-only list of the transactions of the last days, oldest first.
+     */
+    public List<Transaction> getRecentTransactions(int days) {
+        long today = BusinessDay.today();
+        return transactions.getRange(BusinessDay.startOf(today - days + 1), BusinessDay.startOf(today + 1));
+    }
+    /**
+     * Removes transactions of days before the given date from memory. The daily sales
+     * counters for those days are kept.
+     * 
+     * @param date The first business day to keep.
+     * @return The number of transactions evicted.
+     */
+    public int evictTransactionsBefore(LocalDate date) {
+        return transactions.evictBefore(date.toEpochDay());
+    }
+    /**
+     * Freezes the transactions of past days into compact columns that hold no game
+     * references. They can still be read back as transactions.
+     * 
+     * @return The number of transactions frozen.
+     */
+    public int compactTransactionHistory() {
+        return transactions.compactBefore(BusinessDay.today());
+    }
+    /**
+     * Visits every line sold between two dates, for reports the daily counters cannot
+     * answer. Past days are scanned straight from their frozen columns.
+     * 
+     * @param from The first business day to include.
+     * @param to The last business day to include.
+     * @param visitor Receives each line, oldest first.
+     */
+    public void forEachSaleLine(LocalDate from, LocalDate to, TransactionArchive.LineVisitor visitor) {
+        transactions.forEachLine(BusinessDay.startOf(from.toEpochDay()), BusinessDay.startOf(to.toEpochDay() + 1), visitor);
+    }
+    /**
+     * @param sku The SKU key of a line sold.
+     * @return The title it was sold under, or null if the key is unknown.
+     */
+    public String getTitleOfSku(long sku) {
+        return titles.titleOf(TitleRegistry.titleIdOf(sku));
+    }
+    /**
+     * @param title The title of a game, which need not be stocked.
+     * @param format The format of the game.
+     * @return The SKU key of the title in that format, as used in frozen sales.
      */
-    public double calculateDailyTotal() {
-        return transactions.stream()
-                           .filter(t -> isToday(t.getTimestamp()))
-                           .mapToDouble(Transaction::getTotalPrice)
-                           .sum();
+    public long getSkuOf(String title, Format format) {
+        return TitleRegistry.skuKey(titles.intern(title), format);
     }
     /**
-     * @param timestamp The timestamp to be checked.
-     * @return true if the timestamp is of the current day, otherwise false.
+     * @return The total sales amount for the day in cents.
      */
-    private boolean isToday(long timestamp) {
-        LocalDate transactionDate = Instant.ofEpochMilli(timestamp)
-                                           .atZone(ZoneId.systemDefault())
-                                           .toLocalDate();
-        return transactionDate.equals(LocalDate.now());
+    public long calculateDailyTotal() {
+        return getTodaysSales().getTotalSales();
     }
 
 }
@@ -0,0 +1,154 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * A point-in-time copy of everything a {@link Store} needs to resume after a restart,
+ * together with the journal offset it is consistent with.
+ */
+public class StoreState {
+	private final long journalOffset;
+	private final int transactionHighWaterMark;
+	private final List<RentalCount> rentalCounts = new ArrayList<>();
+	private final List<DayTotals> dailySales = new ArrayList<>();
+	private final List<Transaction> transactions = new ArrayList<>();
+	private final List<TransactionArchive> frozenDays = new ArrayList<>();
+	private final List<Rental> rentals = new ArrayList<>();
+	private final LongFunction<String> titleOfSku;
+
+	/**
+	 * @param journalOffset The journal offset the state includes every record before.
+	 * @param transactionHighWaterMark The highest transaction number issued.
+	 */
+	public StoreState(long journalOffset, int transactionHighWaterMark) {
+		this(journalOffset, transactionHighWaterMark, sku -> null);
+	}
+	/**
+	 * @param journalOffset The journal offset the state includes every record before.
+	 * @param transactionHighWaterMark The highest transaction number issued.
+	 * @param titleOfSku Names the title of a SKU key in the frozen days.
+	 */
+	public StoreState(long journalOffset, int transactionHighWaterMark, LongFunction<String> titleOfSku) {
+		this.journalOffset = journalOffset;
+		this.transactionHighWaterMark = transactionHighWaterMark;
+		this.titleOfSku = titleOfSku;
+	}
+
+	public long getJournalOffset() {
+		return journalOffset;
+	}
+	public int getTransactionHighWaterMark() {
+		return transactionHighWaterMark;
+	}
+	public List<RentalCount> getRentalCounts() {
+		return rentalCounts;
+	}
+	/**
+	 * @return The sales counters of each business day, copied when the state was taken.
+	 */
+	public List<DayTotals> getDailySales() {
+		return dailySales;
+	}
+	/**
+	 * @return The transactions of days not yet frozen, oldest first.
+	 */
+	public List<Transaction> getTransactions() {
+		return transactions;
+	}
+	/**
+	 * @return The frozen days of sales, oldest first.
+	 */
+	public List<TransactionArchive> getFrozenDays() {
+		return frozenDays;
+	}
+	/**
+	 * @param sku A SKU key from the frozen days.
+	 * @return The title it was sold under, or null if the key is unknown.
+	 */
+	public String getTitleOfSku(long sku) {
+		return titleOfSku.apply(sku);
+	}
+	/**
+	 * @return The copies out on rental, due soonest first.
+	 */
+	public List<Rental> getRentals() {
+		return rentals;
+	}
+
+	/**
+	 * The number of copies of one game out on rental.
+	 */
+	public static class RentalCount {
+		private final String title;
+		private final String format;
+		private final int copiesRentedOut;
+
+		/**
+		 * @param title The title of the game.
+		 * @param format The format of the game.
+		 * @param copiesRentedOut The number of copies out on rental.
+		 */
+		public RentalCount(String title, String format, int copiesRentedOut) {
+			this.title = title;
+			this.format = format;
+			this.copiesRentedOut = copiesRentedOut;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+		public String getFormat() {
+			return format;
+		}
+		public int getCopiesRentedOut() {
+			return copiesRentedOut;
+		}
+	}
+
+	/**
+	 * The sales counters of one business day, fixed at the moment they were copied.
+	 */
+	public static class DayTotals {
+		private final long epochDay;
+		private final long gamesSold;
+		private final long totalSales;
+		private final FormatBreakdown salesByFormat;
+
+		/**
+		 * @param sales The running counters to copy.
+		 */
+		public DayTotals(DailySales sales) {
+			this(sales.getEpochDay(), sales.getGamesSold(), sales.getTotalSales(), sales.getSalesByFormat());
+		}
+		/**
+		 * @param epochDay The business day.
+		 * @param gamesSold The number of games sold.
+		 * @param totalSales The total sales in cents.
+		 * @param salesByFormat The games sold and sales value per format.
+		 */
+		public DayTotals(long epochDay, long gamesSold, long totalSales, FormatBreakdown salesByFormat) {
+			this.epochDay = epochDay;
+			this.gamesSold = gamesSold;
+			this.totalSales = totalSales;
+			this.salesByFormat = salesByFormat;
+		}
+
+		public long getEpochDay() {
+			return epochDay;
+		}
+		public long getGamesSold() {
+			return gamesSold;
+		}
+		/**
+		 * @return The total sales in cents.
+		 */
+		public long getTotalSales() {
+			return totalSales;
+		}
+		public FormatBreakdown getSalesByFormat() {
+			return salesByFormat;
+		}
+	}
+}
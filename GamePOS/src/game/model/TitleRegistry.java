@@ -0,0 +1,81 @@
+package game.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns game titles into dense int ids, so a title and a format can be packed
+ * into a single primitive SKU key.
+ */
+public class TitleRegistry {
+	private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+	// Titles by id; replaced with a larger copy as titles are interned
+	private volatile String[] titles = new String[64];
+
+	/**
+	 * @param title The title to intern.
+	 * @return The title's id, assigned on first use.
+	 */
+	public int intern(String title) {
+		Integer id = ids.get(title);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			return ids.computeIfAbsent(title, t -> {
+				int newId = ids.size();
+				String[] current = titles;
+				if (newId == current.length) {
+					current = Arrays.copyOf(current, newId * 2);
+				}
+				current[newId] = t;
+				titles = current;
+				return newId;
+			});
+		}
+	}
+
+	/**
+	 * @param titleId An interned title id.
+	 * @return The title, or null if no title has that id.
+	 */
+	public String titleOf(int titleId) {
+		String[] current = titles;
+		return titleId >= 0 && titleId < current.length ? current[titleId] : null;
+	}
+
+	/**
+	 * @param title The title to look up.
+	 * @return The title's id, or -1 if the title was never interned.
+	 */
+	public int idOf(String title) {
+		Integer id = ids.get(title);
+		return id != null ? id : -1;
+	}
+
+	/**
+	 * @param titleId The interned title id.
+	 * @param format The format.
+	 * @return The SKU key for that title in that format.
+	 */
+	public static long skuKey(int titleId, Format format) {
+		return ((long) titleId << 8) | format.getId();
+	}
+
+	/**
+	 * @param skuKey A SKU key.
+	 * @return The interned title id packed into it.
+	 */
+	public static int titleIdOf(long skuKey) {
+		return (int) (skuKey >>> 8);
+	}
+
+	/**
+	 * @param skuKey A SKU key.
+	 * @return The format packed into it.
+	 */
+	public static Format formatOf(long skuKey) {
+		return Format.fromId((int) (skuKey & 0xff));
+	}
+}
@@ -0,0 +1,397 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Substring index over game titles. Every title has an order key, and keys follow title
+ * order. Every trigram of a normalized title maps to the sorted keys of the titles
+ * containing it. A query intersects the posting lists of its trigrams, shortest first,
+ * and verifies the few survivors, so it never scans the catalog, and the survivors come
+ * out in title order without sorting. Queries shorter than a trigram match too much of
+ * the catalog for an index to help and walk the titles in order instead.
+ * <p>
+ * Queries are lock-free; updates are serialized and only touch the postings of the
+ * titles added or removed. A new title takes a key between those of its neighbours,
+ * which build leaves room for; once two neighbours have no room between them, the
+ * index is rebuilt.
+ */
+public class TitleSearchIndex {
+	private static final int GRAM = 3;
+	// The widest spacing a build leaves between the keys of neighbouring titles
+	private static final int MAX_GAP = 1 << 16;
+
+	private volatile Postings postings;
+	// Updates only; the slot of every title indexed
+	private final Map<String, Integer> slots = new HashMap<>();
+
+	/**
+	 * @param titles The titles to index; duplicates are ignored.
+	 */
+	public TitleSearchIndex(Collection<String> titles) {
+		postings = build(titles);
+	}
+
+	/**
+	 * @param query The text to look for, matched case-insensitively anywhere in a title.
+	 * @return The matching titles in sorted order.
+	 */
+	public List<String> search(String query) {
+		Postings p = postings;
+		TitleOrder order = p.order; // Read first: publishes every entry the order refers to
+		String text = normalize(query);
+		List<String> result = new ArrayList<>();
+		if (text.length() < GRAM) {
+			for (int i = 0; i < order.keys.length; i++) {
+				int slot = order.slots[i];
+				String title = p.titles[slot];
+				String normalized = p.normalized[slot];
+				if (title != null && normalized != null && normalized.contains(text)) {
+					result.add(title);
+				}
+			}
+			return result;
+		}
+
+		int grams = text.length() - GRAM + 1;
+		Posting[] lists = new Posting[grams];
+		for (int i = 0; i < grams; i++) {
+			lists[i] = p.byGram.get(gram(text, i));
+			if (lists[i] == null) {
+				return result;
+			}
+		}
+		Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+		int[] candidates = Arrays.copyOf(lists[0].keys, lists[0].size);
+		int matches = candidates.length;
+		for (int i = 1; i < lists.length && matches > 0; i++) {
+			matches = intersect(candidates, matches, lists[i].keys, lists[i].size, candidates);
+		}
+		int from = 0;
+		for (int i = 0; i < matches; i++) {
+			// Keys ascend, so each is looked up past the last one found
+			int at = Arrays.binarySearch(order.keys, from, order.keys.length, candidates[i]);
+			if (at < 0) {
+				from = -at - 1; // Added or removed after the order was read
+				continue;
+			}
+			from = at + 1;
+			int slot = order.slots[at];
+			String title = p.titles[slot];
+			String normalized = p.normalized[slot];
+			// Every trigram matching does not guarantee they are adjacent, so confirm
+			if (title != null && normalized != null && normalized.contains(text)) {
+				result.add(title);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Indexes a title; does nothing if it is already indexed.
+	 *
+	 * @param title The title to add.
+	 */
+	public synchronized void add(String title) {
+		if (slots.containsKey(title)) {
+			return;
+		}
+		Postings p = postings;
+		TitleOrder order = p.order;
+		int at = order.positionOf(title, p.titles);
+		long lower = at > 0 ? order.keys[at - 1] : 0;
+		long upper = at < order.keys.length ? order.keys[at] : (long) Integer.MAX_VALUE + 1;
+		long key = Math.min(lower + p.gap, (lower + upper) / 2);
+		if (key <= lower) {
+			List<String> titles = new ArrayList<>(slots.keySet());
+			titles.add(title);
+			postings = build(titles); // No room left between the neighbours
+			return;
+		}
+
+		int slot = p.slotsUsed++;
+		if (slot == p.titles.length) {
+			int capacity = Math.max(16, slot * 2);
+			p.titles = Arrays.copyOf(p.titles, capacity);
+			p.normalized = Arrays.copyOf(p.normalized, capacity);
+		}
+		String text = normalize(title);
+		p.titles[slot] = title;
+		p.normalized[slot] = text;
+		forEachGram(text, gram -> {
+			Posting posting = p.byGram.get(gram);
+			p.byGram.put(gram, posting == null ? new Posting(new int[] { (int) key }, 1) : posting.insert((int) key));
+		});
+		slots.put(title, slot);
+		p.order = order.insert(at, (int) key, slot); // Publishes the title to queries
+	}
+
+	/**
+	 * Stops a title from matching; does nothing if it is not indexed.
+	 *
+	 * @param title The title to remove.
+	 */
+	public synchronized void remove(String title) {
+		Integer slot = slots.remove(title);
+		if (slot == null) {
+			return;
+		}
+		Postings p = postings;
+		TitleOrder order = p.order;
+		int at = order.positionOf(title, p.titles);
+		int key = order.keys[at];
+		forEachGram(p.normalized[slot], gram -> {
+			Posting posting = p.byGram.get(gram);
+			if (posting == null) {
+				return; // A trigram the title repeats, already emptied
+			}
+			posting = posting.remove(key);
+			if (posting.size == 0) {
+				p.byGram.remove(gram);
+			} else {
+				p.byGram.put(gram, posting);
+			}
+		});
+		p.order = order.remove(at); // Publishes the removal to queries
+		p.titles[slot] = null;
+		p.normalized[slot] = null;
+		p.removed++;
+		if (p.removed * 2 > p.slotsUsed) {
+			postings = build(new ArrayList<>(slots.keySet())); // Reclaims the slots of removed titles
+		}
+	}
+
+	/**
+	 * @return The number of distinct titles indexed.
+	 */
+	public int size() {
+		return postings.order.keys.length;
+	}
+
+	/**
+	 * Indexes the titles in sorted order, spacing their keys evenly across the key range.
+	 */
+	private Postings build(Collection<String> titles) {
+		String[] sorted = new TreeSet<>(titles).toArray(new String[0]);
+		int gap = (int) Math.max(1, Math.min(MAX_GAP, Integer.MAX_VALUE / (sorted.length + 1L)));
+		Postings p = new Postings(sorted.length, gap);
+		Map<Long, IntList> building = new HashMap<>();
+		int[] keys = new int[sorted.length];
+		int[] bySlot = new int[sorted.length];
+		slots.clear();
+		for (int slot = 0; slot < sorted.length; slot++) {
+			int key = (slot + 1) * gap;
+			String text = normalize(sorted[slot]);
+			p.titles[slot] = sorted[slot];
+			p.normalized[slot] = text;
+			keys[slot] = key;
+			bySlot[slot] = slot;
+			slots.put(sorted[slot], slot);
+			forEachGram(text, gram -> {
+				IntList list = building.computeIfAbsent(gram, g -> new IntList());
+				if (list.size == 0 || list.values[list.size - 1] != key) {
+					list.add(key);
+				}
+			});
+		}
+		for (Map.Entry<Long, IntList> entry : building.entrySet()) {
+			IntList list = entry.getValue();
+			p.byGram.put(entry.getKey(), new Posting(list.values, list.size));
+		}
+		p.slotsUsed = sorted.length;
+		p.order = new TitleOrder(keys, bySlot);
+		return p;
+	}
+
+	/**
+	 * Intersects two sorted lists, writing the result into {@code out}, which may be
+	 * {@code a} itself since the output never overtakes the input.
+	 *
+	 * @return The length of the intersection.
+	 */
+	private static int intersect(int[] a, int aLength, int[] b, int bLength, int[] out) {
+		if (aLength * 16 < bLength) {
+			return gallop(a, aLength, b, bLength, out);
+		}
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < aLength && j < bLength) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				out[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Intersects a short list with a much longer one by searching the longer list for each
+	 * value, in steps that double until they pass it.
+	 */
+	private static int gallop(int[] a, int aLength, int[] b, int bLength, int[] out) {
+		int n = 0;
+		int low = 0;
+		for (int i = 0; i < aLength && low < bLength; i++) {
+			int value = a[i];
+			int step = 1;
+			int high = low;
+			while (high < bLength && b[high] < value) {
+				low = high + 1;
+				high += step;
+				step <<= 1;
+			}
+			int found = Arrays.binarySearch(b, low, Math.min(high + 1, bLength), value);
+			if (found >= 0) {
+				out[n++] = value;
+				low = found + 1;
+			} else {
+				low = -found - 1;
+			}
+		}
+		return n;
+	}
+
+	private static String normalize(String text) {
+		return text.toLowerCase(Locale.ROOT);
+	}
+
+	private static void forEachGram(String text, LongConsumer action) {
+		for (int i = 0; i + GRAM <= text.length(); i++) {
+			action.accept(gram(text, i));
+		}
+	}
+
+	private static long gram(String text, int start) {
+		return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+	}
+
+	/**
+	 * Everything one build of the index holds. Updates write the postings and titles
+	 * before replacing the volatile order, and queries read the order first.
+	 */
+	private static class Postings {
+		private final SkuMap<Posting> byGram = new SkuMap<>();
+		private final int gap;
+		// By slot; null once the title is removed
+		private String[] titles;
+		private String[] normalized;
+		private int slotsUsed;
+		private int removed;
+		private volatile TitleOrder order;
+
+		Postings(int capacity, int gap) {
+			this.gap = gap;
+			titles = new String[capacity];
+			normalized = new String[capacity];
+		}
+	}
+
+	/**
+	 * The key and slot of every title indexed, in title order. Replaced, never changed,
+	 * so a query sees one consistent order.
+	 */
+	private static class TitleOrder {
+		private final int[] keys;
+		private final int[] slots;
+
+		TitleOrder(int[] keys, int[] slots) {
+			this.keys = keys;
+			this.slots = slots;
+		}
+
+		/**
+		 * @return The position of the title, or where it would be inserted.
+		 */
+		int positionOf(String title, String[] titles) {
+			int low = 0;
+			int high = keys.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (titles[slots[mid]].compareTo(title) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		TitleOrder insert(int at, int key, int slot) {
+			return new TitleOrder(inserted(keys, at, key), inserted(slots, at, slot));
+		}
+
+		TitleOrder remove(int at) {
+			return new TitleOrder(removed(keys, at, keys.length), removed(slots, at, slots.length));
+		}
+	}
+
+	/**
+	 * The keys of the titles containing one trigram, in ascending order. The array may have
+	 * spare room past {@code size}, which a later append fills in; queries holding this
+	 * posting never look past its size.
+	 */
+	private static class Posting {
+		private final int[] keys;
+		private final int size;
+
+		Posting(int[] keys, int size) {
+			this.keys = keys;
+			this.size = size;
+		}
+
+		Posting insert(int key) {
+			if (key > keys[size - 1]) {
+				int[] grown = size < keys.length ? keys : Arrays.copyOf(keys, size * 2);
+				grown[size] = key;
+				return new Posting(grown, size + 1);
+			}
+			int at = Arrays.binarySearch(keys, 0, size, key);
+			return at >= 0 ? this : new Posting(inserted(Arrays.copyOf(keys, size), -at - 1, key), size + 1);
+		}
+
+		Posting remove(int key) {
+			int at = Arrays.binarySearch(keys, 0, size, key);
+			return at < 0 ? this : new Posting(removed(keys, at, size), size - 1);
+		}
+	}
+
+	private static int[] inserted(int[] values, int at, int value) {
+		int[] copy = new int[values.length + 1];
+		System.arraycopy(values, 0, copy, 0, at);
+		copy[at] = value;
+		System.arraycopy(values, at, copy, at + 1, values.length - at);
+		return copy;
+	}
+
+	private static int[] removed(int[] values, int at, int length) {
+		int[] copy = new int[length - 1];
+		System.arraycopy(values, 0, copy, 0, at);
+		System.arraycopy(values, at + 1, copy, at, length - at - 1);
+		return copy;
+	}
+
+	private static class IntList {
+		private int[] values = new int[4];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+	}
+}
@@ -1,29 +1,59 @@
 package game.model;
 
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
 
 public class Transaction {
 
 	private List<Game> games;
-	private final long timestamp; 
-	private final double PRICE_PER_NIGHT = 2.00;
-	private static int transactionCount = 0; 
-	private int transactionNumber = 0000;
+	private volatile long timestamp;
+	// Per line, in the same order as games
+	private int[] lineNights = new int[4];
+	private long[] linePrices = new long[4];
+	private long totalCents;
+	// 0 until the sale commits and the store assigns a number
+	private volatile int transactionNumber;
 
 	public Transaction() {
 		this.games = new ArrayList<>();
 		this.timestamp = System.currentTimeMillis(); // Capture the current time
-		this.transactionNumber = ++transactionCount;
 	}
 
 	/**
+	 * Recreates a transaction completed in an earlier session, e.g. when replaying the journal.
+	 * 
+	 * @param transactionNumber The number the transaction was issued with.
+	 * @param timestamp The time the transaction was created.
+	 */
+	public Transaction(int transactionNumber, long timestamp) {
+		this.games = new ArrayList<>();
+		this.timestamp = timestamp;
+		this.transactionNumber = transactionNumber;
+	}
+
+	/**
+	 * Adds a one-night rental at {@link PricingEngine#STANDARD_RATE}.
+	 * 
 	 * @param game The game to add to the transaction.
 	 */
 	public void addGame(Game game) {
+		addGame(game, 1, PricingEngine.STANDARD_RATE);
+	}
+	/**
+	 * @param game The game to add to the transaction.
+	 * @param nights The number of nights it is rented for.
+	 * @param priceCents The price of the line in cents, for all nights.
+	 */
+	public void addGame(Game game, int nights, long priceCents) {
+		int line = games.size();
+		if (line == linePrices.length) {
+			lineNights = Arrays.copyOf(lineNights, line * 2);
+			linePrices = Arrays.copyOf(linePrices, line * 2);
+		}
+		lineNights[line] = nights;
+		linePrices[line] = priceCents;
+		totalCents += priceCents;
 		games.add(game);
 	}
 	/**
@@ -36,44 +66,62 @@ public class Transaction {
 	 * @return A string representing the formatted receipt.
 	 */
 	public String getReceipt() {
-		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-		DecimalFormat priceFormat = new DecimalFormat("$0.00");
-		StringBuilder receipt = new StringBuilder();
-
-		receipt.append("Transaction Date: ").append(dateFormat.format(new Date(timestamp))).append("\n");
-		receipt.append("Transaction Number: ").append(String.format("%04d", transactionNumber)).append("\n");
-		receipt.append(String.format("%10s %34s %11s\n", "Title", "Format", "Price"));
-		receipt.append(String.format("%15s\n", "----------------------------------------------------------"));
-		for (Game game : games) {
-			receipt.append(String.format("%-40s %-10s %s\n", 
-					game.getTitle(), 
-					game.getFormat(), 
-					priceFormat.format(PRICE_PER_NIGHT))); 
-		}
-		// Total Price
-		receipt.append("\n").append(String.format("%1s %51s", 
-				"Total", 
-				priceFormat.format(calculateTotalPrice())));
-
-		return receipt.toString();
+		return ReceiptRenderer.render(this);
 	}
     /**
-     * @return The total price for the transaction.
+     * @param line The index of the line, matching getGamesList().
+     * @return The number of nights rented on that line.
      */
-	public double calculateTotalPrice() {
-		return games.size()*PRICE_PER_NIGHT;
+	public int getNights(int line) {
+		return lineNights[line];
 	}
     /**
-     * @return The timestamp as a long value.
+     * @param line The index of the line, matching getGamesList().
+     * @return The price of that line in cents.
      */
-	public long getTimestamp() {
-		return timestamp;
+	public long getLinePrice(int line) {
+		return linePrices[line];
 	}
     /**
-     * @return The total price as calculated by calculateTotalPrice().
+     * @return The total price for the transaction in cents.
      */
+	public long getTotalCents() {
+		return totalCents;
+	}
+    /**
+     * @return The total price for the transaction in dollars.
+     * @deprecated Doubles cannot hold every amount of cents exactly; use {@link #getTotalCents()}.
+     */
+	@Deprecated
 	public double getTotalPrice() {
-		return calculateTotalPrice();
+		return getTotalCents() / 100.0;
+	}
+	/**
+	 * @param timestamp The time the sale committed, replacing the time the cart was opened.
+	 */
+	void stamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+	/**
+	 * @param number The number issued when the sale commits.
+	 */
+	void assignNumber(int number) {
+		if (transactionNumber != 0) {
+			throw new IllegalStateException("Transaction " + transactionNumber + " already has a number");
+		}
+		transactionNumber = number;
+	}
+    /**
+     * @return The number printed on the receipt, or 0 if the sale has not committed yet.
+     */
+	public int getTransactionNumber() {
+		return transactionNumber;
+	}
+    /**
+     * @return The timestamp as a long value.
+     */
+	public long getTimestamp() {
+		return timestamp;
 	}
 
 }
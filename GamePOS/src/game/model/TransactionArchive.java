@@ -0,0 +1,254 @@
+package game.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Completed sales frozen into parallel primitive columns, one row per line sold:
+ * timestamp, transaction number, SKU key, nights and price in cents. Rows are in
+ * timestamp order and a sale's lines are adjacent. An archive holds no references to
+ * games, so it pins no object graphs and later edits to a game do not change it, and
+ * scans over it read each column sequentially.
+ * <p>
+ * The columns live either on the heap or in one direct buffer outside it. Archives are
+ * immutable and safe to read from any thread.
+ */
+public class TransactionArchive {
+	/** The SKU column's value for a row holding a sale with no lines. */
+	public static final long NO_SKU = -1;
+	private static final int ROW_BYTES = Long.BYTES * 3 + Integer.BYTES * 2;
+
+	/**
+	 * Receives the rows of a scan.
+	 */
+	@FunctionalInterface
+	public interface LineVisitor {
+		/**
+		 * @param timestamp When the sale was made.
+		 * @param transactionNumber The sale's number.
+		 * @param sku The SKU key of the game, as from {@link TitleRegistry#skuKey}.
+		 * @param nights The nights it was rented for.
+		 * @param priceCents The price of the line in cents.
+		 */
+		void visit(long timestamp, int transactionNumber, long sku, int nights, long priceCents);
+	}
+
+	private final int size;
+	private final int transactions;
+	private final LongBuffer timestamps;
+	private final IntBuffer numbers;
+	private final LongBuffer skus;
+	private final IntBuffer nights;
+	private final LongBuffer prices;
+
+	/**
+	 * @param transactions The sales to freeze, in timestamp order.
+	 * @param skuOf Gives the SKU key of a game sold.
+	 * @param offHeap Whether to keep the columns in a direct buffer outside the heap.
+	 */
+	public TransactionArchive(List<Transaction> transactions, ToLongFunction<Game> skuOf, boolean offHeap) {
+		this(rowsOf(transactions), transactions.size(), offHeap);
+		int row = 0;
+		for (Transaction transaction : transactions) {
+			List<Game> games = transaction.getGamesList();
+			if (games.isEmpty()) {
+				put(row++, transaction.getTimestamp(), transaction.getTransactionNumber(), NO_SKU, 0, 0);
+			}
+			for (int line = 0; line < games.size(); line++) {
+				put(row++, transaction.getTimestamp(), transaction.getTransactionNumber(),
+						skuOf.applyAsLong(games.get(line)), transaction.getNights(line), transaction.getLinePrice(line));
+			}
+		}
+	}
+	/**
+	 * Rebuilds an archive from its columns, e.g. when reading a snapshot.
+	 * 
+	 * @param timestamps When each row's sale was made, in ascending order.
+	 * @param numbers Each row's transaction number.
+	 * @param skus Each row's SKU key, or {@link #NO_SKU}.
+	 * @param nights Each row's nights.
+	 * @param prices Each row's price in cents.
+	 * @param offHeap Whether to keep the columns in a direct buffer outside the heap.
+	 */
+	public TransactionArchive(long[] timestamps, int[] numbers, long[] skus, int[] nights, long[] prices, boolean offHeap) {
+		this(timestamps.length, countTransactions(timestamps, numbers), offHeap);
+		for (int row = 0; row < size; row++) {
+			put(row, timestamps[row], numbers[row], skus[row], nights[row], prices[row]);
+		}
+	}
+	/**
+	 * @param source The archive to copy.
+	 * @param offHeap Whether to keep the copy's columns in a direct buffer outside the heap.
+	 */
+	public TransactionArchive(TransactionArchive source, boolean offHeap) {
+		this(source.size, source.transactions, offHeap);
+		for (int row = 0; row < size; row++) {
+			put(row, source.getTimestamp(row), source.getTransactionNumber(row), source.getSku(row),
+					source.getNights(row), source.getPrice(row));
+		}
+	}
+
+	private TransactionArchive(int rows, int transactions, boolean offHeap) {
+		this.size = rows;
+		this.transactions = transactions;
+		if (offHeap) {
+			ByteBuffer block = ByteBuffer.allocateDirect(Math.max(1, rows) * ROW_BYTES).order(ByteOrder.nativeOrder());
+			timestamps = column(block, 0, rows * Long.BYTES).asLongBuffer();
+			skus = column(block, rows * Long.BYTES, rows * Long.BYTES).asLongBuffer();
+			prices = column(block, rows * Long.BYTES * 2, rows * Long.BYTES).asLongBuffer();
+			numbers = column(block, rows * Long.BYTES * 3, rows * Integer.BYTES).asIntBuffer();
+			nights = column(block, rows * (Long.BYTES * 3 + Integer.BYTES), rows * Integer.BYTES).asIntBuffer();
+		} else {
+			timestamps = LongBuffer.allocate(rows);
+			skus = LongBuffer.allocate(rows);
+			prices = LongBuffer.allocate(rows);
+			numbers = IntBuffer.allocate(rows);
+			nights = IntBuffer.allocate(rows);
+		}
+	}
+
+	private static int rowsOf(List<Transaction> transactions) {
+		int rows = 0;
+		for (Transaction transaction : transactions) {
+			rows += Math.max(1, transaction.getGamesList().size());
+		}
+		return rows;
+	}
+
+	/**
+	 * @return The number of sales in the rows; a sale's lines share a number and timestamp.
+	 */
+	private static int countTransactions(long[] timestamps, int[] numbers) {
+		int count = 0;
+		for (int row = 0; row < timestamps.length; row++) {
+			if (row == 0 || numbers[row] != numbers[row - 1] || timestamps[row] != timestamps[row - 1]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static ByteBuffer column(ByteBuffer block, int offset, int length) {
+		return block.duplicate().position(offset).limit(offset + length).slice().order(ByteOrder.nativeOrder());
+	}
+
+	private void put(int row, long timestamp, int number, long sku, int lineNights, long priceCents) {
+		timestamps.put(row, timestamp);
+		numbers.put(row, number);
+		skus.put(row, sku);
+		nights.put(row, lineNights);
+		prices.put(row, priceCents);
+	}
+
+	/**
+	 * @return The number of rows.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * @return The number of sales the rows hold.
+	 */
+	public int getTransactionCount() {
+		return transactions;
+	}
+	/**
+	 * @return Whether the columns are kept outside the heap.
+	 */
+	public boolean isOffHeap() {
+		return timestamps.isDirect();
+	}
+	public long getTimestamp(int row) {
+		return timestamps.get(row);
+	}
+	public int getTransactionNumber(int row) {
+		return numbers.get(row);
+	}
+	/**
+	 * @param row The row.
+	 * @return The SKU key of the game sold, or {@link #NO_SKU} for a sale with no lines.
+	 */
+	public long getSku(int row) {
+		return skus.get(row);
+	}
+	public int getNights(int row) {
+		return nights.get(row);
+	}
+	public long getPrice(int row) {
+		return prices.get(row);
+	}
+
+	/**
+	 * @param timestamp The timestamp to search for.
+	 * @return The first row at or after the timestamp.
+	 */
+	private int lowerBound(long timestamp) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (timestamps.get(mid) < timestamp) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param from The first timestamp to include.
+	 * @param to The timestamp to stop before.
+	 * @return The total of the lines sold in [from, to), in cents.
+	 */
+	public long totalCents(long from, long to) {
+		long total = 0;
+		for (int row = lowerBound(from), end = lowerBound(to); row < end; row++) {
+			total += prices.get(row);
+		}
+		return total;
+	}
+
+	/**
+	 * @param from The first timestamp to include.
+	 * @param to The timestamp to stop before.
+	 * @param visitor Receives every line sold in [from, to), oldest first.
+	 */
+	public void forEachLine(long from, long to, LineVisitor visitor) {
+		for (int row = lowerBound(from), end = lowerBound(to); row < end; row++) {
+			long sku = skus.get(row);
+			if (sku != NO_SKU) {
+				visitor.visit(timestamps.get(row), numbers.get(row), sku, nights.get(row), prices.get(row));
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the sales in a range as transactions.
+	 * 
+	 * @param from The first timestamp to include.
+	 * @param to The timestamp to stop before.
+	 * @param gameOf Gives the game to show for a SKU key.
+	 * @param out Receives the sales in [from, to), oldest first.
+	 */
+	public void collect(long from, long to, LongFunction<Game> gameOf, List<Transaction> out) {
+		Transaction current = null;
+		for (int row = lowerBound(from), end = lowerBound(to); row < end; row++) {
+			long timestamp = timestamps.get(row);
+			int number = numbers.get(row);
+			if (current == null || current.getTransactionNumber() != number || current.getTimestamp() != timestamp) {
+				current = new Transaction(number, timestamp);
+				out.add(current);
+			}
+			long sku = skus.get(row);
+			if (sku != NO_SKU) {
+				current.addGame(gameOf.apply(sku), nights.get(row), prices.get(row));
+			}
+		}
+	}
+}
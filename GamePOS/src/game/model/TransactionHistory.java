@@ -0,0 +1,342 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Completed transactions partitioned by business day. Each partition is kept in
+ * timestamp order, so range queries only touch the days they cover and binary search
+ * within the first and last of them.
+ * <p>
+ * Past days can be frozen into a {@link TransactionArchive}. Reading a frozen day rebuilds
+ * its transactions with games fixed at the title and format they were sold under.
+ */
+public class TransactionHistory {
+	private final ConcurrentSkipListMap<Long, DayPartition> partitions = new ConcurrentSkipListMap<>();
+	private volatile DayPartition latest;
+	private final TitleRegistry titles;
+	private final boolean offHeap;
+
+	/**
+	 * @param titles The registry SKU keys of archived lines are made from.
+	 * @param offHeap Whether frozen days keep their columns outside the heap.
+	 */
+	public TransactionHistory(TitleRegistry titles, boolean offHeap) {
+		this.titles = titles;
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * @param transaction The completed transaction to be added.
+	 */
+	public void add(Transaction transaction) {
+		partitionFor(transaction.getTimestamp()).add(transaction);
+	}
+
+	/**
+	 * @param timestamp The timestamp of a transaction.
+	 * @return The partition for the business day the timestamp falls on.
+	 */
+	private DayPartition partitionFor(long timestamp) {
+		DayPartition partition = latest;
+		if (partition != null && partition.contains(timestamp)) {
+			return partition;
+		}
+		partition = partitions.computeIfAbsent(BusinessDay.epochDayOf(timestamp), epochDay -> new DayPartition(epochDay));
+		DayPartition current = latest;
+		if (current == null || partition.epochDay > current.epochDay) {
+			latest = partition;
+		}
+		return partition;
+	}
+
+	/**
+	 * @param from The first timestamp to include.
+	 * @param to The timestamp to stop before.
+	 * @return The transactions in [from, to), oldest first.
+	 */
+	public List<Transaction> getRange(long from, long to) {
+		if (from >= to) {
+			return Collections.emptyList();
+		}
+		NavigableMap<Long, DayPartition> days = partitions.subMap(
+				BusinessDay.epochDayOf(from), true, BusinessDay.epochDayOf(to - 1), true);
+		List<Transaction> result = new ArrayList<>();
+		for (DayPartition partition : days.values()) {
+			partition.collect(from, to, result);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @param epochDay The business day to fetch.
+	 * @return The transactions of that day, oldest first.
+	 */
+	public List<Transaction> getDay(long epochDay) {
+		DayPartition partition = partitions.get(epochDay);
+		if (partition == null) {
+			return Collections.emptyList();
+		}
+		List<Transaction> result = new ArrayList<>();
+		partition.collect(Long.MIN_VALUE, Long.MAX_VALUE, result);
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @return Every retained transaction, oldest first.
+	 */
+	public List<Transaction> getAll() {
+		List<Transaction> result = new ArrayList<>();
+		for (DayPartition partition : partitions.values()) {
+			partition.collect(Long.MIN_VALUE, Long.MAX_VALUE, result);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @return The number of retained transactions.
+	 */
+	public int size() {
+		int size = 0;
+		for (DayPartition partition : partitions.values()) {
+			size += partition.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Drops whole partitions older than the given day from the heap.
+	 * 
+	 * @param epochDay The first business day to keep.
+	 * @return The number of transactions evicted.
+	 */
+	public int evictBefore(long epochDay) {
+		int evicted = 0;
+		Map<Long, DayPartition> old = partitions.headMap(epochDay);
+		for (DayPartition partition : old.values()) {
+			evicted += partition.size();
+		}
+		old.clear();
+		return evicted;
+	}
+
+	/**
+	 * Freezes every partition older than the given day into an archive. Past days no
+	 * longer grow, so they need neither spare capacity nor live game references.
+	 * 
+	 * @param epochDay The first business day to leave untouched.
+	 * @return The number of transactions frozen.
+	 */
+	public int compactBefore(long epochDay) {
+		int frozen = 0;
+		for (DayPartition partition : partitions.headMap(epochDay).values()) {
+			frozen += partition.freeze();
+		}
+		return frozen;
+	}
+
+	/**
+	 * Copies out the whole history for a snapshot. Frozen days are immutable, so they are
+	 * handed over as they are rather than rebuilt as transactions.
+	 * 
+	 * @param frozenDays Receives the archive of every frozen day, oldest first.
+	 * @param liveTransactions Receives the transactions of every other day, oldest first.
+	 */
+	public void copyTo(List<TransactionArchive> frozenDays, List<Transaction> liveTransactions) {
+		for (DayPartition partition : partitions.values()) {
+			partition.copyTo(frozenDays, liveTransactions);
+		}
+	}
+
+	/**
+	 * Puts back a day frozen in an earlier session, e.g. read from a snapshot.
+	 * 
+	 * @param archive The day's sales, with SKU keys from this history's registry.
+	 */
+	public void restoreFrozenDay(TransactionArchive archive) {
+		if (archive.size() == 0) {
+			return;
+		}
+		if (archive.isOffHeap() != offHeap) {
+			archive = new TransactionArchive(archive, offHeap);
+		}
+		partitionFor(archive.getTimestamp(0)).restore(archive);
+	}
+
+	/**
+	 * Visits every line sold in a range, reading frozen days straight from their columns.
+	 * 
+	 * @param from The first timestamp to include.
+	 * @param to The timestamp to stop before.
+	 * @param visitor Receives each line, oldest first.
+	 */
+	public void forEachLine(long from, long to, TransactionArchive.LineVisitor visitor) {
+		if (from >= to) {
+			return;
+		}
+		for (DayPartition partition : partitions.subMap(
+				BusinessDay.epochDayOf(from), true, BusinessDay.epochDayOf(to - 1), true).values()) {
+			partition.forEachLine(from, to, visitor);
+		}
+	}
+
+	/**
+	 * @param game A game sold.
+	 * @return Its SKU key.
+	 */
+	private long skuOf(Game game) {
+		return TitleRegistry.skuKey(titles.intern(game.getTitle()), game.getFormatType());
+	}
+
+	/**
+	 * One business day of transactions, ordered by timestamp. Either the live list or,
+	 * once frozen, the archive holds them.
+	 */
+	private class DayPartition {
+		private final long epochDay;
+		private final long dayStart;
+		private final long dayEnd;
+		private ArrayList<Transaction> transactions = new ArrayList<>();
+		private TransactionArchive archive;
+		private int archiveSize;
+
+		DayPartition(long epochDay) {
+			this.epochDay = epochDay;
+			this.dayStart = BusinessDay.startOf(epochDay);
+			this.dayEnd = BusinessDay.startOf(epochDay + 1);
+		}
+
+		boolean contains(long timestamp) {
+			return timestamp >= dayStart && timestamp < dayEnd;
+		}
+
+		synchronized void add(Transaction transaction) {
+			if (archive != null) {
+				thaw(); // A sale from a frozen day, e.g. replayed or restored after the day was frozen
+			}
+			long timestamp = transaction.getTimestamp();
+			int size = transactions.size();
+			if (size == 0 || transactions.get(size - 1).getTimestamp() <= timestamp) {
+				transactions.add(transaction);
+			} else {
+				// Sales are stamped at commit, but terminals committing at once can add in a different
+				// order than they stamped, and replayed or restored sales need not arrive in order
+				transactions.add(lowerBound(timestamp + 1), transaction);
+			}
+		}
+
+		synchronized void collect(long from, long to, List<Transaction> out) {
+			if (archive != null) {
+				Map<Long, Game> games = new HashMap<>();
+				archive.collect(from, to, sku -> games.computeIfAbsent(sku, this::frozenGame), out);
+				return;
+			}
+			int size = transactions.size();
+			int start = from <= dayStart ? 0 : lowerBound(from);
+			for (int i = start; i < size; i++) {
+				Transaction transaction = transactions.get(i);
+				if (transaction.getTimestamp() >= to) {
+					break;
+				}
+				out.add(transaction);
+			}
+		}
+
+		synchronized void forEachLine(long from, long to, TransactionArchive.LineVisitor visitor) {
+			if (archive != null) {
+				archive.forEachLine(from, to, visitor);
+				return;
+			}
+			int start = from <= dayStart ? 0 : lowerBound(from);
+			for (int i = start; i < transactions.size(); i++) {
+				Transaction transaction = transactions.get(i);
+				if (transaction.getTimestamp() >= to) {
+					break;
+				}
+				List<Game> games = transaction.getGamesList();
+				for (int line = 0; line < games.size(); line++) {
+					visitor.visit(transaction.getTimestamp(), transaction.getTransactionNumber(), skuOf(games.get(line)),
+							transaction.getNights(line), transaction.getLinePrice(line));
+				}
+			}
+		}
+
+		synchronized void copyTo(List<TransactionArchive> frozenDays, List<Transaction> liveTransactions) {
+			if (archive != null) {
+				frozenDays.add(archive);
+			} else {
+				liveTransactions.addAll(transactions);
+			}
+		}
+
+		synchronized void restore(TransactionArchive frozen) {
+			if (archive == null && transactions.isEmpty()) {
+				archive = frozen;
+				archiveSize = frozen.getTransactionCount();
+				transactions = null;
+				return;
+			}
+			Map<Long, Game> games = new HashMap<>();
+			List<Transaction> restored = new ArrayList<>();
+			frozen.collect(Long.MIN_VALUE, Long.MAX_VALUE, sku -> games.computeIfAbsent(sku, this::frozenGame), restored);
+			for (Transaction transaction : restored) {
+				add(transaction);
+			}
+		}
+
+		synchronized int size() {
+			return archive != null ? archiveSize : transactions.size();
+		}
+
+		/**
+		 * @return The number of transactions frozen, or 0 if already frozen.
+		 */
+		synchronized int freeze() {
+			if (archive != null) {
+				return 0;
+			}
+			archive = new TransactionArchive(transactions, TransactionHistory.this::skuOf, offHeap);
+			archiveSize = transactions.size();
+			transactions = null;
+			return archiveSize;
+		}
+
+		private void thaw() {
+			transactions = new ArrayList<>(archiveSize + 1);
+			Map<Long, Game> games = new HashMap<>();
+			archive.collect(Long.MIN_VALUE, Long.MAX_VALUE, sku -> games.computeIfAbsent(sku, this::frozenGame), transactions);
+			archive = null;
+		}
+
+		/**
+		 * @param sku The SKU key of a game sold.
+		 * @return A detached game showing the title and format it was sold under.
+		 */
+		private Game frozenGame(long sku) {
+			return new Game(titles.titleOf(TitleRegistry.titleIdOf(sku)), TitleRegistry.formatOf(sku).getCode(), 0);
+		}
+
+		/**
+		 * @param timestamp The timestamp to search for.
+		 * @return The index of the first transaction at or after the timestamp.
+		 */
+		private int lowerBound(long timestamp) {
+			int low = 0;
+			int high = transactions.size();
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (transactions.get(mid).getTimestamp() < timestamp) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+}
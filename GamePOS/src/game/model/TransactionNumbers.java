@@ -0,0 +1,79 @@
+package game.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues transaction numbers without locks. Each terminal claims a block of numbers from
+ * a shared counter and hands them out itself, so terminals only touch the shared counter
+ * once per block. Numbers are unique but not in time order across terminals, and numbers
+ * left in a block at shutdown are skipped.
+ * <p>
+ * The high-water mark is saved in snapshots and raised again by journal replay, so a
+ * restart never issues a number that is already on a receipt. Restore it before any
+ * terminal takes a number.
+ */
+public class TransactionNumbers {
+	public static final int BLOCK_SIZE = 32;
+
+	// The highest number claimed by any block or seen on a restored transaction
+	private final AtomicInteger highWaterMark = new AtomicInteger();
+
+	/**
+	 * @return A new terminal with its own blocks of numbers.
+	 */
+	public Terminal newTerminal() {
+		return new Terminal();
+	}
+
+	/**
+	 * @param number A number issued before a restart; later blocks start above it.
+	 */
+	public void observe(int number) {
+		highWaterMark.accumulateAndGet(number, Math::max);
+	}
+
+	/**
+	 * @return The highest number claimed or observed so far.
+	 */
+	public int getHighWaterMark() {
+		return highWaterMark.get();
+	}
+
+	/**
+	 * Hands out the numbers of one block at a time to the sales of one terminal.
+	 */
+	public final class Terminal {
+		// The next number in the high 32 bits and the block end (exclusive) in the low 32 bits
+		private final AtomicLong range = new AtomicLong();
+
+		private Terminal() {
+		}
+
+		/**
+		 * @return The next unused transaction number.
+		 */
+		public int next() {
+			while (true) {
+				long current = range.get();
+				int next = (int) (current >>> 32);
+				int end = (int) current;
+				if (next < end) {
+					if (range.compareAndSet(current, pack(next + 1, end))) {
+						return next;
+					}
+				} else {
+					int start = highWaterMark.getAndAdd(BLOCK_SIZE) + 1;
+					// A terminal shared by two threads may lose this race; the spare block is just skipped
+					if (range.compareAndSet(current, pack(start + 1, start + BLOCK_SIZE))) {
+						return start;
+					}
+				}
+			}
+		}
+
+		private long pack(int next, int end) {
+			return ((long) next << 32) | (end & 0xffffffffL);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package game.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import game.model.Store;
+import game.model.StoreState;
+
+/**
+ * Ties a {@link Store} to its snapshot and journal files. Startup loads the latest
+ * snapshot and replays only the journal tail written after it; while running, a
+ * snapshot is taken periodically and the journal is compacted behind it.
+ */
+public class StorePersistence implements Closeable {
+	private final Store store;
+	private final Path snapshotPath;
+	private final TransactionJournal journal;
+	private final ScheduledExecutorService scheduler;
+
+	private StorePersistence(Store store, Path snapshotPath, TransactionJournal journal, long snapshotIntervalMinutes) {
+		this.store = store;
+		this.snapshotPath = snapshotPath;
+		this.journal = journal;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "store-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				snapshot();
+			} catch (IOException e) {
+				System.err.println("Error writing snapshot: " + e.getMessage());
+			}
+		}, snapshotIntervalMinutes, snapshotIntervalMinutes, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Restores the store and starts journaling its changes.
+	 * 
+	 * @param store The store to restore. Its inventory must already be loaded.
+	 * @param snapshotPath The snapshot file, which need not exist yet.
+	 * @param journalPath The journal file, which need not exist yet.
+	 * @param snapshotIntervalMinutes How often to take a snapshot while running.
+	 * @return The persistence attached to the store.
+	 * @throws IOException If the snapshot or journal cannot be read.
+	 */
+	public static StorePersistence open(Store store, Path snapshotPath, Path journalPath,
+			long snapshotIntervalMinutes) throws IOException {
+		long journalOffset = 0;
+		if (Files.exists(snapshotPath)) {
+			StoreState state = StoreSnapshot.read(snapshotPath, store);
+			store.restoreState(state);
+			journalOffset = state.getJournalOffset();
+		}
+		TransactionJournal journal = TransactionJournal.open(journalPath, store, journalOffset);
+		store.setJournal(journal);
+		return new StorePersistence(store, snapshotPath, journal, snapshotIntervalMinutes);
+	}
+
+	/**
+	 * Writes a snapshot of the current state, drops the journal records it covers and
+	 * freezes the sales of past days.
+	 * 
+	 * @throws IOException If the snapshot or the compacted journal cannot be written.
+	 */
+	public synchronized void snapshot() throws IOException {
+		StoreState state = store.captureState();
+		StoreSnapshot.write(snapshotPath, state);
+		journal.compact(state.getJournalOffset());
+		store.compactTransactionHistory(); // Past days no longer change; freeze them
+	}
+
+	/**
+	 * Takes a final snapshot so the next start has nothing to replay, then closes the journal.
+	 */
+	@Override
+	public void close() throws IOException {
+		scheduler.shutdownNow();
+		try {
+			snapshot();
+		} finally {
+			journal.close();
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package game.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import game.model.Format;
+import game.model.FormatBreakdown;
+import game.model.Game;
+import game.model.PricingEngine;
+import game.model.Rental;
+import game.model.Store;
+import game.model.StoreState;
+import game.model.TitleRegistry;
+import game.model.Transaction;
+import game.model.TransactionArchive;
+
+/**
+ * Reads and writes compact binary snapshots of a {@link StoreState}. Games are written
+ * once into a table and referenced by index, so transactions cost a few bytes per item.
+ * Frozen days are written column by column, as they are held.
+ */
+public final class StoreSnapshot {
+	private static final int MAGIC = 0x47505334; // "GPS4"
+	// Older layouts, read for upgrades only: GPS1 kept sales as doubles, GPS2 had no rental
+	// records, GPS3 had no frozen days
+	private static final int MAGIC_V1 = 0x47505331; // "GPS1"
+	private static final int MAGIC_V2 = 0x47505332; // "GPS2"
+	private static final int MAGIC_V3 = 0x47505333; // "GPS3"
+
+	private StoreSnapshot() {
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file, syncs it and renames it over the target,
+	 * so a crash leaves either the previous snapshot or the new one.
+	 * 
+	 * @param path The snapshot file.
+	 * @param state The state to write.
+	 * @throws IOException If the snapshot cannot be written.
+	 */
+	public static void write(Path path, StoreState state) throws IOException {
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temp.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeLong(state.getJournalOffset());
+			out.writeInt(state.getTransactionHighWaterMark());
+
+			out.writeInt(state.getRentalCounts().size());
+			for (StoreState.RentalCount count : state.getRentalCounts()) {
+				out.writeUTF(count.getTitle());
+				out.writeUTF(count.getFormat());
+				out.writeInt(count.getCopiesRentedOut());
+			}
+
+			out.writeInt(state.getDailySales().size());
+			for (StoreState.DayTotals sales : state.getDailySales()) {
+				out.writeLong(sales.getEpochDay());
+				out.writeLong(sales.getGamesSold());
+				out.writeLong(sales.getTotalSales());
+				// Formats are written by code, since ids depend on registration order
+				FormatBreakdown byFormat = sales.getSalesByFormat();
+				out.writeInt(byFormat.size());
+				for (int f = 0; f < byFormat.size(); f++) {
+					Format format = Format.fromId(f);
+					out.writeUTF(format.getCode());
+					out.writeLong(byFormat.getGamesSold(format));
+					out.writeLong(byFormat.getSales(format));
+				}
+			}
+
+			Map<Game, Integer> gameIds = new HashMap<>();
+			for (Transaction transaction : state.getTransactions()) {
+				for (Game game : transaction.getGamesList()) {
+					gameIds.putIfAbsent(game, gameIds.size());
+				}
+			}
+			for (Rental rental : state.getRentals()) {
+				gameIds.putIfAbsent(rental.getGame(), gameIds.size());
+			}
+			Game[] games = new Game[gameIds.size()];
+			gameIds.forEach((game, id) -> games[id] = game);
+			out.writeInt(games.length);
+			for (Game game : games) {
+				out.writeUTF(game.getTitle());
+				out.writeUTF(game.getFormat());
+			}
+			out.writeInt(state.getTransactions().size());
+			for (Transaction transaction : state.getTransactions()) {
+				out.writeInt(transaction.getTransactionNumber());
+				out.writeLong(transaction.getTimestamp());
+				List<Game> items = transaction.getGamesList();
+				out.writeInt(items.size());
+				for (int item = 0; item < items.size(); item++) {
+					out.writeInt(gameIds.get(items.get(item)));
+					out.writeInt(transaction.getNights(item));
+					out.writeLong(transaction.getLinePrice(item));
+				}
+			}
+			out.writeInt(state.getRentals().size());
+			for (Rental rental : state.getRentals()) {
+				out.writeInt(gameIds.get(rental.getGame()));
+				out.writeInt(rental.getTransactionNumber());
+				out.writeLong(rental.getRentedAt());
+				out.writeLong(rental.getDueAt());
+			}
+			writeFrozenDays(out, state);
+			out.flush();
+			file.getFD().sync();
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @param path The snapshot file.
+	 * @param store The store whose inventory the snapshot's transactions refer to.
+	 * @return The state read from the snapshot.
+	 * @throws IOException If the snapshot cannot be read or is not a snapshot file.
+	 */
+	public static StoreState read(Path path, Store store) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+			int magic = in.readInt();
+			if (magic != MAGIC && magic != MAGIC_V3 && magic != MAGIC_V2 && magic != MAGIC_V1) {
+				throw new IOException("Not a game store snapshot: " + path);
+			}
+			boolean cents = magic != MAGIC_V1;
+			StoreState state = new StoreState(in.readLong(), in.readInt());
+
+			int rentalCounts = in.readInt();
+			for (int i = 0; i < rentalCounts; i++) {
+				state.getRentalCounts().add(new StoreState.RentalCount(in.readUTF(), in.readUTF(), in.readInt()));
+			}
+
+			int days = in.readInt();
+			for (int i = 0; i < days; i++) {
+				long epochDay = in.readLong();
+				long gamesSold = in.readLong();
+				long totalSales = cents ? in.readLong() : Math.round(in.readDouble() * 100);
+				long[] counts = new long[Format.count()];
+				long[] values = new long[Format.count()];
+				int formats = in.readInt();
+				for (int f = 0; f < formats; f++) {
+					String code = in.readUTF();
+					long count = in.readLong();
+					long value = cents ? in.readLong() : Math.round(in.readDouble() * 100);
+					Format format = Format.fromCode(code);
+					if (format != null) {
+						counts[format.getId()] += count;
+						values[format.getId()] += value;
+					} else {
+						System.err.println("Snapshot refers to unknown format: " + code);
+					}
+				}
+				state.getDailySales().add(new StoreState.DayTotals(epochDay, gamesSold, totalSales,
+						new FormatBreakdown(counts, values)));
+			}
+
+			Game[] games = new Game[in.readInt()];
+			for (int i = 0; i < games.length; i++) {
+				String title = in.readUTF();
+				String format = in.readUTF();
+				games[i] = store.getGameForRecord(title, format);
+				if (games[i] == null) {
+					System.err.println("Snapshot refers to unknown game: " + title + " (" + format + ")");
+				}
+			}
+			int transactions = in.readInt();
+			for (int i = 0; i < transactions; i++) {
+				Transaction transaction = new Transaction(in.readInt(), in.readLong());
+				int items = in.readInt();
+				for (int item = 0; item < items; item++) {
+					Game game = games[in.readInt()];
+					int nights = cents ? in.readInt() : 1;
+					long price = cents ? in.readLong() : PricingEngine.STANDARD_RATE;
+					if (game != null) {
+						transaction.addGame(game, nights, price);
+					}
+				}
+				state.getTransactions().add(transaction);
+			}
+			if (magic == MAGIC || magic == MAGIC_V3) {
+				int rentals = in.readInt();
+				for (int i = 0; i < rentals; i++) {
+					Game game = games[in.readInt()];
+					Rental rental = new Rental(game, in.readInt(), in.readLong(), in.readLong());
+					if (game != null) {
+						state.getRentals().add(rental);
+					}
+				}
+			}
+			if (magic == MAGIC) {
+				readFrozenDays(in, store, state);
+			}
+			return state;
+		}
+	}
+
+	/**
+	 * Writes the frozen days column by column. SKU keys depend on the order titles were
+	 * interned in, so lines refer to a table of title and format instead.
+	 */
+	private static void writeFrozenDays(DataOutputStream out, StoreState state) throws IOException {
+		Map<Long, Integer> skuIds = new HashMap<>();
+		for (TransactionArchive day : state.getFrozenDays()) {
+			for (int row = 0; row < day.size(); row++) {
+				long sku = day.getSku(row);
+				if (sku != TransactionArchive.NO_SKU) {
+					skuIds.putIfAbsent(sku, skuIds.size());
+				}
+			}
+		}
+		long[] skus = new long[skuIds.size()];
+		skuIds.forEach((sku, id) -> skus[id] = sku);
+		out.writeInt(skus.length);
+		for (long sku : skus) {
+			out.writeUTF(state.getTitleOfSku(sku));
+			out.writeUTF(TitleRegistry.formatOf(sku).getCode());
+		}
+		out.writeInt(state.getFrozenDays().size());
+		for (TransactionArchive day : state.getFrozenDays()) {
+			int rows = day.size();
+			out.writeInt(rows);
+			for (int row = 0; row < rows; row++) {
+				out.writeLong(day.getTimestamp(row));
+			}
+			for (int row = 0; row < rows; row++) {
+				out.writeInt(day.getTransactionNumber(row));
+			}
+			for (int row = 0; row < rows; row++) {
+				long sku = day.getSku(row);
+				out.writeInt(sku == TransactionArchive.NO_SKU ? -1 : skuIds.get(sku));
+			}
+			for (int row = 0; row < rows; row++) {
+				out.writeInt(day.getNights(row));
+			}
+			for (int row = 0; row < rows; row++) {
+				out.writeLong(day.getPrice(row));
+			}
+		}
+	}
+
+	private static void readFrozenDays(DataInputStream in, Store store, StoreState state) throws IOException {
+		long[] skus = new long[in.readInt()];
+		for (int i = 0; i < skus.length; i++) {
+			String title = in.readUTF();
+			String code = in.readUTF();
+			Format format = Format.fromCode(code);
+			if (format != null) {
+				skus[i] = store.getSkuOf(title, format);
+			} else {
+				System.err.println("Snapshot refers to unknown format: " + code);
+				skus[i] = TransactionArchive.NO_SKU;
+			}
+		}
+		int days = in.readInt();
+		for (int day = 0; day < days; day++) {
+			int rows = in.readInt();
+			long[] timestamps = new long[rows];
+			int[] numbers = new int[rows];
+			long[] lineSkus = new long[rows];
+			int[] nights = new int[rows];
+			long[] prices = new long[rows];
+			for (int row = 0; row < rows; row++) {
+				timestamps[row] = in.readLong();
+			}
+			for (int row = 0; row < rows; row++) {
+				numbers[row] = in.readInt();
+			}
+			for (int row = 0; row < rows; row++) {
+				int sku = in.readInt();
+				lineSkus[row] = sku < 0 ? TransactionArchive.NO_SKU : skus[sku];
+			}
+			for (int row = 0; row < rows; row++) {
+				nights[row] = in.readInt();
+			}
+			for (int row = 0; row < rows; row++) {
+				prices[row] = in.readLong();
+			}
+			state.getFrozenDays().add(new TransactionArchive(timestamps, numbers, lineSkus, nights, prices, false));
+		}
+	}
+}
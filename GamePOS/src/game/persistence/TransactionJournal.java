@@ -0,0 +1,451 @@
+package game.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+import game.model.Game;
+import game.model.PricingEngine;
+import game.model.SalesJournal;
+import game.model.Store;
+import game.model.Transaction;
+
+/**
+ * Append-only binary journal of completed sales and inventory changes.
+ * <p>
+ * The file starts with {@code [int magic][long baseOffset]}, followed by records framed as
+ * {@code [int length][int crc32][payload]}. Offsets handed out by {@link #position()} are
+ * logical: they keep counting across {@link #compact(long)}, which drops the records a
+ * snapshot already covers and records the dropped length in the base offset.
+ * <p>
+ * Callers block until their record is on disk, but a single writer thread drains
+ * everything queued behind the record it is working on and forces the channel once per
+ * batch, so a rush of checkouts shares a handful of fsyncs.
+ */
+public class TransactionJournal implements SalesJournal, Closeable {
+	private static final int MAGIC = 0x47504a31; // "GPJ1"
+	private static final int FILE_HEADER_BYTES = 12;
+	private static final byte SALE = 1;
+	private static final byte INVENTORY_DELTA = 2;
+	// Sales written before per-line pricing are replayed at the standard rate
+	private static final byte PRICED_SALE = 3;
+	private static final int FRAME_HEADER_BYTES = 8;
+	private static final int MAX_BATCH = 512;
+
+	private final Path path;
+	private volatile FileChannel channel;
+	private volatile long baseOffset;
+	// Held by the writer per batch and by compaction, which swaps the file underneath it
+	private final ReentrantLock channelLock = new ReentrantLock();
+	private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	private volatile boolean closed;
+	// Set when a failed batch could not be cut off the file; nothing may follow it
+	private volatile IOException broken;
+
+	private TransactionJournal(Path path, FileChannel channel, long baseOffset) {
+		this.path = path;
+		this.channel = channel;
+		this.baseOffset = baseOffset;
+		this.writer = new Thread(this::writeLoop, "journal-writer");
+		this.writer.setDaemon(true);
+	}
+
+	/**
+	 * Opens the journal, replays it into the store and starts accepting new records.
+	 * A torn record at the end of the file (from a crash mid-write) is cut off.
+	 * 
+	 * @param path The journal file, created if it does not exist.
+	 * @param store The store to rebuild. Its inventory must already be loaded.
+	 * @param fromOffset The logical offset to replay from, i.e. the offset of the snapshot
+	 *                   the store was restored from, or 0 without a snapshot.
+	 * @return The open journal, positioned at the end of the last complete record.
+	 * @throws IOException If the file cannot be opened or read.
+	 */
+	public static TransactionJournal open(Path path, Store store, long fromOffset) throws IOException {
+		FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long base;
+			if (channel.size() == 0) {
+				base = fromOffset;
+				writeHeader(channel, base);
+			} else {
+				base = readHeader(channel);
+				if (fromOffset < base) {
+					throw new IOException("Journal starts at offset " + base + " but the snapshot needs offset " + fromOffset);
+				}
+			}
+			long start = FILE_HEADER_BYTES + fromOffset - base;
+			if (start > channel.size()) {
+				// The snapshot is newer than the journal, so nothing is left to replay
+				System.err.println("Journal ends before snapshot offset " + fromOffset + "; starting a new journal");
+				base = fromOffset;
+				channel.truncate(0);
+				writeHeader(channel, base);
+				start = FILE_HEADER_BYTES;
+			}
+			long end = replay(channel, start, store);
+			if (end < channel.size()) {
+				System.err.println("Discarding incomplete journal tail at byte " + end);
+				channel.truncate(end);
+			}
+			channel.position(end);
+			TransactionJournal journal = new TransactionJournal(path, channel, base);
+			journal.writer.start();
+			return journal;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static void writeHeader(FileChannel channel, long base) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+		header.putInt(MAGIC).putLong(base).flip();
+		channel.position(0);
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+		channel.force(false);
+	}
+
+	private static long readHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+		channel.position(0);
+		while (header.hasRemaining() && channel.read(header) >= 0) {
+		}
+		header.flip();
+		if (header.remaining() < FILE_HEADER_BYTES || header.getInt() != MAGIC) {
+			throw new IOException("Not a game journal file");
+		}
+		return header.getLong();
+	}
+
+	/**
+	 * @param channel The journal channel.
+	 * @param start The file position of the first record to replay.
+	 * @param store The store to apply the records to.
+	 * @return The file position just past the last complete record.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private static long replay(FileChannel channel, long start, Store store) throws IOException {
+		channel.position(start);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+		CRC32 crc = new CRC32();
+		long offset = start;
+		while (true) {
+			byte[] payload;
+			try {
+				int length = in.readInt();
+				int checksum = in.readInt();
+				if (length <= 0 || offset + FRAME_HEADER_BYTES + length > channel.size()) {
+					return offset;
+				}
+				payload = new byte[length];
+				in.readFully(payload);
+				crc.reset();
+				crc.update(payload);
+				if ((int) crc.getValue() != checksum) {
+					return offset;
+				}
+			} catch (EOFException e) {
+				return offset;
+			}
+			apply(payload, store);
+			offset += FRAME_HEADER_BYTES + payload.length;
+		}
+	}
+
+	/**
+	 * @param payload One record's payload.
+	 * @param store The store to apply it to.
+	 * @throws IOException If the payload is malformed.
+	 */
+	private static void apply(byte[] payload, Store store) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		byte type = in.readByte();
+		switch (type) {
+		case SALE:
+		case PRICED_SALE:
+			int transactionNumber = in.readInt();
+			long timestamp = in.readLong();
+			int itemCount = in.readInt();
+			Transaction transaction = new Transaction(transactionNumber, timestamp);
+			for (int i = 0; i < itemCount; i++) {
+				String title = in.readUTF();
+				String format = in.readUTF();
+				int nights = type == PRICED_SALE ? in.readInt() : 1;
+				long price = type == PRICED_SALE ? in.readLong() : PricingEngine.STANDARD_RATE;
+				Game game = store.getGameForRecord(title, format);
+				if (game != null) {
+					transaction.addGame(game, nights, price);
+				} else {
+					System.err.println("Journaled sale " + transactionNumber + " refers to unknown game: " + title + " (" + format + ")");
+				}
+			}
+			store.restoreCompletedTransaction(transaction);
+			break;
+		case INVENTORY_DELTA:
+			store.restoreInventoryDelta(in.readUTF(), in.readUTF(), in.readInt());
+			break;
+		default:
+			throw new IOException("Unknown journal record type: " + type);
+		}
+	}
+
+	@Override
+	public void recordSale(Transaction transaction) {
+		List<Game> games = transaction.getGamesList();
+		append(out -> {
+			out.writeByte(PRICED_SALE);
+			out.writeInt(transaction.getTransactionNumber());
+			out.writeLong(transaction.getTimestamp());
+			out.writeInt(games.size());
+			for (int i = 0; i < games.size(); i++) {
+				out.writeUTF(games.get(i).getTitle());
+				out.writeUTF(games.get(i).getFormat());
+				out.writeInt(transaction.getNights(i));
+				out.writeLong(transaction.getLinePrice(i));
+			}
+		});
+	}
+
+	@Override
+	public void recordInventoryDelta(String title, String format, int delta) {
+		append(out -> {
+			out.writeByte(INVENTORY_DELTA);
+			out.writeUTF(title);
+			out.writeUTF(format);
+			out.writeInt(delta);
+		});
+	}
+
+	@Override
+	public long position() {
+		channelLock.lock();
+		try {
+			return baseOffset + channel.position() - FILE_HEADER_BYTES;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			channelLock.unlock();
+		}
+	}
+
+	/**
+	 * Drops every record before the given logical offset, which a durable snapshot must
+	 * already cover. The remaining tail is copied to a temporary file that then replaces
+	 * the journal, so a crash leaves either the old or the new file in place.
+	 * 
+	 * @param upTo The logical offset of the first record to keep.
+	 * @throws IOException If the compacted journal cannot be written.
+	 */
+	public void compact(long upTo) throws IOException {
+		channelLock.lock();
+		try {
+			long from = FILE_HEADER_BYTES + upTo - baseOffset;
+			if (upTo <= baseOffset || from > channel.size()) {
+				return;
+			}
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			try (FileChannel compacted = FileChannel.open(temp, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				writeHeader(compacted, upTo);
+				long remaining = channel.size() - from;
+				long copied = 0;
+				while (copied < remaining) {
+					copied += channel.transferTo(from + copied, remaining - copied, compacted);
+				}
+				compacted.force(false);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			FileChannel reopened = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			reopened.position(reopened.size());
+			channel.close();
+			channel = reopened;
+			baseOffset = upTo;
+		} finally {
+			channelLock.unlock();
+		}
+	}
+
+	/**
+	 * Frames a record, queues it for the writer and waits until it has been forced to disk.
+	 * 
+	 * @param body Writes the record payload.
+	 */
+	private void append(RecordBody body) {
+		if (closed) {
+			throw new IllegalStateException("Journal is closed");
+		}
+		IOException failure = broken;
+		if (failure != null) {
+			throw new UncheckedIOException("Journal is unusable after a failed write", failure);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		try {
+			body.writeTo(new DataOutputStream(bytes));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		byte[] payload = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payload.length);
+		frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+		PendingWrite write = new PendingWrite(frame);
+		queue.add(write);
+		if (closed && queue.remove(write)) {
+			// Closed after the check above, and neither the writer nor close() took it
+			throw new IllegalStateException("Journal is closed");
+		}
+		try {
+			write.done.join();
+		} catch (CompletionException e) {
+			throw new UncheckedIOException("Error writing journal", (IOException) e.getCause());
+		}
+	}
+
+	private void writeLoop() {
+		List<PendingWrite> batch = new ArrayList<>();
+		while (!closed || !queue.isEmpty()) {
+			try {
+				PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, MAX_BATCH - 1);
+				ByteBuffer[] frames = new ByteBuffer[batch.size()];
+				for (int i = 0; i < frames.length; i++) {
+					frames[i] = batch.get(i).frame;
+				}
+				channelLock.lock();
+				try {
+					writeBatch(frames);
+				} finally {
+					channelLock.unlock();
+				}
+				for (PendingWrite write : batch) {
+					write.done.complete(null);
+				}
+			} catch (IOException e) {
+				for (PendingWrite write : batch) {
+					write.done.completeExceptionally(e);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Writes and forces one batch. If that fails, the file is cut back to where the batch
+	 * started, so no torn frame is left for later records to land behind; a torn frame
+	 * would end replay there and lose them. Called with the channel lock held.
+	 * 
+	 * @param frames The framed records.
+	 * @throws IOException If the batch could not be made durable.
+	 */
+	private void writeBatch(ByteBuffer[] frames) throws IOException {
+		IOException failure = broken;
+		if (failure != null) {
+			throw failure;
+		}
+		long batchStart = -1;
+		try {
+			batchStart = channel.position();
+			while (frames[frames.length - 1].hasRemaining()) {
+				channel.write(frames);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			try {
+				if (batchStart < 0) {
+					throw e;
+				}
+				channel.truncate(batchStart);
+				channel.position(batchStart);
+			} catch (IOException rollbackFailure) {
+				if (rollbackFailure != e) {
+					e.addSuppressed(rollbackFailure);
+				}
+				broken = e;
+				System.err.println("Journal cannot recover from a failed write; refusing further records: " + e.getMessage());
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Wraps the open file channel, e.g. to inject faults in tests.
+	 * 
+	 * @param wrapper Returns the channel to use in place of the one given.
+	 */
+	void wrapChannel(UnaryOperator<FileChannel> wrapper) {
+		channelLock.lock();
+		try {
+			channel = wrapper.apply(channel);
+		} finally {
+			channelLock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for queued records to be written, then closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		PendingWrite orphan;
+		while ((orphan = queue.poll()) != null) {
+			orphan.done.completeExceptionally(new IOException("Journal is closed"));
+		}
+		channel.close();
+	}
+
+	private interface RecordBody {
+		void writeTo(DataOutputStream out) throws IOException;
+	}
+
+	private static class PendingWrite {
+		private final ByteBuffer frame;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		PendingWrite(ByteBuffer frame) {
+			this.frame = frame;
+		}
+	}
+}
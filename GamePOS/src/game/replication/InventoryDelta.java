@@ -0,0 +1,60 @@
+package game.replication;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A change in one store's available copies of one game, numbered in the order the
+ * originating store made it.
+ */
+public final class InventoryDelta {
+	private final String origin;
+	private final long sequence;
+	private final String title;
+	private final String format;
+	private final int delta;
+
+	/**
+	 * @param origin The id of the store whose stock changed.
+	 * @param sequence The change's position among that store's changes, from 1.
+	 * @param title The title of the game.
+	 * @param format The format code of the game.
+	 * @param delta The change in available copies.
+	 */
+	public InventoryDelta(String origin, long sequence, String title, String format, int delta) {
+		this.origin = origin;
+		this.sequence = sequence;
+		this.title = title;
+		this.format = format;
+		this.delta = delta;
+	}
+
+	void write(DataOutput out) throws IOException {
+		out.writeUTF(origin);
+		out.writeLong(sequence);
+		out.writeUTF(title);
+		out.writeUTF(format);
+		out.writeInt(delta);
+	}
+
+	static InventoryDelta read(DataInput in) throws IOException {
+		return new InventoryDelta(in.readUTF(), in.readLong(), in.readUTF(), in.readUTF(), in.readInt());
+	}
+
+	public String getOrigin() {
+		return origin;
+	}
+	public long getSequence() {
+		return sequence;
+	}
+	public String getTitle() {
+		return title;
+	}
+	public String getFormat() {
+		return format;
+	}
+	public int getDelta() {
+		return delta;
+	}
+}
@@ -0,0 +1,639 @@
+package game.replication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import game.model.Game;
+import game.model.Store;
+
+/**
+ * Shares a store's availability with other stores over local sockets. Each store owns its
+ * own stock; every change to it is numbered and sent to peers in batches, and each peer
+ * keeps a read-only count of the copies at every other store.
+ * <p>
+ * Peers relay what they receive, so stores need not all be connected to each other. On
+ * connect, both sides swap version vectors and send only the changes the other is missing,
+ * so a store that was offline catches up without a full resend. Changes from one store are
+ * applied in order and duplicates from relays are dropped, so every node converges on the
+ * same counts. A restarted store starts a new incarnation, which replaces its old counts.
+ * <p>
+ * Peers acknowledge what they have applied, and changes every peer has passed are folded
+ * into per-game counts, so the log stays bounded. A peer too far behind for the changes
+ * still logged gets those counts instead, as does a peer that finds a gap in a store's
+ * changes and asks to be resynced.
+ */
+public class ReplicationNode implements Closeable {
+	private static final int MAGIC = 0x47505232; // "GPR2"
+	private static final int MAX_BATCH = 256;
+	// Frames other than a batch of changes, sent in place of the batch size
+	private static final int ACK = -1;
+	private static final int RESYNC = -2;
+	private static final int SNAPSHOT = -3;
+
+	private final String storeId;
+	// Unique per run, so peers can tell a restarted store's changes from its old ones
+	private final String originId;
+	private final VersionVector vector = new VersionVector();
+	// What is known per origin, kept to catch up peers that connect later
+	private final Map<String, OriginLog> log = new ConcurrentHashMap<>();
+	private final Map<String, RemoteStore> remoteStores = new ConcurrentHashMap<>();
+	private final List<Peer> peers = new CopyOnWriteArrayList<>();
+	// Orders logged changes, applied changes and peer catch-up; never taken by a sale
+	private final Object lock = new Object();
+	// Local changes are numbered and queued by the selling thread, then logged by the publisher
+	private final AtomicLong sequence = new AtomicLong();
+	private final Queue<InventoryDelta> localChanges = new ConcurrentLinkedQueue<>();
+	private final Thread publisher;
+	private volatile ServerSocket server;
+	private volatile boolean closed;
+
+	/**
+	 * Publishes the store's current stock and then every change to it. Create the node
+	 * before the store starts taking sales.
+	 *
+	 * @param storeId A name for this store, unique among the connected stores.
+	 * @param store The store whose stock is shared.
+	 */
+	public ReplicationNode(String storeId, Store store) {
+		if (storeId.indexOf('#') >= 0) {
+			throw new IllegalArgumentException("Store id cannot contain '#': " + storeId);
+		}
+		this.storeId = storeId;
+		this.originId = storeId + "#" + System.currentTimeMillis();
+		this.publisher = startThread("replication-publish-" + storeId, this::publishLoop);
+		for (Game game : store.getAllGames()) {
+			onLocalChange(game, game.getNumberOfCopies());
+		}
+		store.addStockListener(this::onLocalChange);
+	}
+
+	/**
+	 * Accepts peer connections on the loopback interface.
+	 *
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @return The port listened on.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public int listen(int port) throws IOException {
+		server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		startThread("replication-accept-" + storeId, () -> {
+			while (!closed) {
+				try {
+					attach(server.accept());
+				} catch (IOException e) {
+					if (!closed) {
+						System.err.println("Replication peer failed to connect: " + e.getMessage());
+					}
+				}
+			}
+		});
+		return server.getLocalPort();
+	}
+
+	/**
+	 * @param host The peer's host.
+	 * @param port The port the peer listens on.
+	 * @throws IOException If the peer cannot be reached.
+	 */
+	public void connect(String host, int port) throws IOException {
+		attach(new Socket(host, port));
+	}
+
+	/**
+	 * Swaps version vectors with a newly connected peer and queues what it is missing.
+	 *
+	 * @param socket The connection.
+	 * @throws IOException If the handshake fails.
+	 */
+	private void attach(Socket socket) throws IOException {
+		try {
+			socket.setTcpNoDelay(true);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeUTF(storeId);
+			vector.write(out);
+			out.flush();
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a replication peer: " + socket.getRemoteSocketAddress());
+			}
+			Peer peer = new Peer(in.readUTF(), socket, in, out);
+			VersionVector seen = VersionVector.read(in);
+			peer.acked = seen;
+			synchronized (lock) {
+				catchUp(peer, seen);
+				peers.add(peer);
+			}
+			peer.writer = startThread("replication-send-" + peer.storeId, peer::writeLoop);
+			startThread("replication-receive-" + peer.storeId, peer::readLoop);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Queues everything the peer has not seen: the changes after its version of each
+	 * origin, led by the origin's folded counts if some of those changes are folded.
+	 * Called with the lock held.
+	 *
+	 * @param peer The peer to catch up.
+	 * @param seen The latest change the peer has applied from each origin.
+	 */
+	private void catchUp(Peer peer, VersionVector seen) {
+		for (Map.Entry<String, OriginLog> entry : log.entrySet()) {
+			OriginLog origin = entry.getValue();
+			long from = seen.get(entry.getKey());
+			if (from < origin.baseSequence) {
+				peer.outbox.add(new OriginSnapshot(entry.getKey(), origin.baseSequence, new HashMap<>(origin.base)));
+				from = origin.baseSequence;
+			}
+			peer.outbox.addAll(origin.changes.tailMap(from, false).values());
+		}
+	}
+
+	/**
+	 * Numbers the change and hands it to the publisher, without waiting on other stores.
+	 *
+	 * @param game The game whose stock changed here.
+	 * @param delta The change in available copies.
+	 */
+	private void onLocalChange(Game game, int delta) {
+		localChanges.add(new InventoryDelta(originId, sequence.incrementAndGet(), game.getTitle(), game.getFormat(), delta));
+		LockSupport.unpark(publisher);
+	}
+
+	/**
+	 * Logs local changes in sequence order and sends them to the peers.
+	 */
+	private void publishLoop() {
+		// Two sales may queue their changes in the opposite order to their numbers
+		PriorityQueue<InventoryDelta> waiting = new PriorityQueue<>(Comparator.comparingLong(InventoryDelta::getSequence));
+		long next = 1;
+		while (!closed) {
+			InventoryDelta delta;
+			while ((delta = localChanges.poll()) != null) {
+				waiting.add(delta);
+			}
+			if (!waiting.isEmpty() && waiting.peek().getSequence() == next) {
+				synchronized (lock) {
+					while (!waiting.isEmpty() && waiting.peek().getSequence() == next) {
+						record(waiting.poll(), null);
+						next++;
+					}
+					if (peers.isEmpty()) {
+						trim(); // Nobody to wait for; a peer that connects later gets the counts
+					}
+				}
+			}
+			if (localChanges.isEmpty()) {
+				LockSupport.park(this);
+			}
+		}
+	}
+
+	/**
+	 * @param delta A change received from a peer.
+	 * @param source The peer it came from.
+	 */
+	private void onRemoteChange(InventoryDelta delta, Peer source) {
+		String origin = delta.getOrigin();
+		String store = storeOf(origin);
+		source.acked.advance(origin, delta.getSequence()); // The peer sent it, so it has applied it
+		if (store.equals(storeId)) {
+			return; // Our own change relayed back
+		}
+		synchronized (lock) {
+			RemoteStore remote = remoteStores.get(store);
+			if (remote != null && incarnationOf(remote.originId) > incarnationOf(origin)) {
+				return; // From an incarnation the store has since replaced
+			}
+			long last = vector.get(origin);
+			if (delta.getSequence() <= last) {
+				return; // Already applied, e.g. through another peer
+			}
+			if (delta.getSequence() != last + 1) {
+				if (source.resyncing.add(origin)) {
+					System.err.println("Replication gap from " + origin + ": expected " + (last + 1) + " but got "
+							+ delta.getSequence() + "; asking " + source.storeId + " to resync");
+					source.outbox.add(RESYNC);
+				}
+				return;
+			}
+			source.resyncing.remove(origin);
+			remote = replaceIfNewer(store, remote, origin);
+			remote.copies.computeIfAbsent(key(delta.getTitle(), delta.getFormat()), k -> new AtomicInteger())
+					.addAndGet(delta.getDelta());
+			record(delta, source);
+		}
+	}
+
+	/**
+	 * Takes an origin's folded counts in place of the changes they stand for, unless this
+	 * node has already applied them.
+	 *
+	 * @param snapshot The counts received from a peer.
+	 * @param source The peer it came from.
+	 */
+	private void onSnapshot(OriginSnapshot snapshot, Peer source) {
+		String origin = snapshot.origin;
+		String store = storeOf(origin);
+		if (store.equals(storeId)) {
+			return;
+		}
+		synchronized (lock) {
+			RemoteStore remote = remoteStores.get(store);
+			if (remote != null && incarnationOf(remote.originId) > incarnationOf(origin)) {
+				return;
+			}
+			source.resyncing.remove(origin);
+			if (snapshot.sequence <= vector.get(origin)) {
+				return;
+			}
+			remote = replaceIfNewer(store, remote, origin);
+			for (Map.Entry<String, Integer> copies : snapshot.copies.entrySet()) {
+				remote.copies.computeIfAbsent(copies.getKey(), k -> new AtomicInteger()).set(copies.getValue());
+			}
+			remote.copies.keySet().retainAll(snapshot.copies.keySet());
+			OriginLog folded = new OriginLog();
+			folded.base.putAll(snapshot.copies);
+			folded.baseSequence = snapshot.sequence;
+			log.put(origin, folded);
+			vector.set(origin, snapshot.sequence);
+			for (Peer peer : peers) {
+				if (peer != source) {
+					peer.outbox.add(snapshot); // Their next change from this origin follows on from it
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The counts for the store, started afresh if the origin is a new incarnation.
+	 *         Called with the lock held.
+	 */
+	private RemoteStore replaceIfNewer(String store, RemoteStore remote, String origin) {
+		if (remote != null && remote.originId.equals(origin)) {
+			return remote;
+		}
+		if (remote != null) {
+			log.remove(remote.originId);
+		}
+		remote = new RemoteStore(origin);
+		remoteStores.put(store, remote);
+		return remote;
+	}
+
+	/**
+	 * Logs a change and passes it on to every peer but the one it came from. Called with
+	 * the lock held.
+	 *
+	 * @param delta The change.
+	 * @param source The peer it came from, or null for a local change.
+	 */
+	private void record(InventoryDelta delta, Peer source) {
+		vector.set(delta.getOrigin(), delta.getSequence());
+		log.computeIfAbsent(delta.getOrigin(), origin -> new OriginLog()).changes.put(delta.getSequence(), delta);
+		for (Peer peer : peers) {
+			if (peer != source) {
+				peer.outbox.add(delta);
+			}
+		}
+	}
+
+	/**
+	 * Folds the changes every connected peer has applied into per-game counts. Called
+	 * with the lock held.
+	 */
+	private void trim() {
+		for (Map.Entry<String, OriginLog> entry : log.entrySet()) {
+			long upTo = vector.get(entry.getKey());
+			for (Peer peer : peers) {
+				upTo = Math.min(upTo, peer.acked.get(entry.getKey()));
+			}
+			entry.getValue().fold(upTo);
+		}
+	}
+
+	/**
+	 * @return The number of changes logged individually rather than folded.
+	 */
+	int getLogSize() {
+		int size = 0;
+		for (OriginLog origin : log.values()) {
+			size += origin.changes.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @param store The id of another store.
+	 * @param title The title of the game.
+	 * @param format The format code of the game.
+	 * @return The copies available at that store, as last heard.
+	 */
+	public int getRemoteCopies(String store, String title, String format) {
+		RemoteStore remote = remoteStores.get(store);
+		AtomicInteger copies = remote != null ? remote.copies.get(key(title, format)) : null;
+		return copies != null ? copies.get() : 0;
+	}
+
+	/**
+	 * @param title The title of the game.
+	 * @param format The format code of the game.
+	 * @return The copies available at all other stores, as last heard.
+	 */
+	public int getCopiesElsewhere(String title, String format) {
+		String key = key(title, format);
+		int total = 0;
+		for (RemoteStore remote : remoteStores.values()) {
+			AtomicInteger copies = remote.copies.get(key);
+			if (copies != null) {
+				total += copies.get();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @return The ids of the other stores heard from.
+	 */
+	public Set<String> getRemoteStores() {
+		return remoteStores.keySet();
+	}
+
+	/**
+	 * @return The latest change applied from each store incarnation.
+	 */
+	public VersionVector getVersionVector() {
+		return vector;
+	}
+
+	public String getStoreId() {
+		return storeId;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		LockSupport.unpark(publisher);
+		if (server != null) {
+			server.close();
+		}
+		for (Peer peer : peers) {
+			peer.close();
+		}
+	}
+
+	private static String storeOf(String origin) {
+		return origin.substring(0, origin.lastIndexOf('#'));
+	}
+
+	private static long incarnationOf(String origin) {
+		return Long.parseLong(origin.substring(origin.lastIndexOf('#') + 1));
+	}
+
+	private static String key(String title, String format) {
+		return title + '\0' + format;
+	}
+
+	private static Thread startThread(String name, Runnable work) {
+		Thread thread = new Thread(work, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * The copies at one other store, from one incarnation of it.
+	 */
+	private static final class RemoteStore {
+		private final String originId;
+		private final Map<String, AtomicInteger> copies = new ConcurrentHashMap<>();
+
+		private RemoteStore(String originId) {
+			this.originId = originId;
+		}
+	}
+
+	/**
+	 * One origin's changes: the ones some peer may still need, by sequence, and the sum
+	 * per game of the ones every peer has applied. Changed with the node's lock held.
+	 */
+	private static final class OriginLog {
+		private final ConcurrentSkipListMap<Long, InventoryDelta> changes = new ConcurrentSkipListMap<>();
+		private final Map<String, Integer> base = new HashMap<>();
+		// The last change folded into the base
+		private long baseSequence;
+
+		/**
+		 * @param upTo The last change to fold into the base.
+		 */
+		private void fold(long upTo) {
+			Iterator<InventoryDelta> folded = changes.headMap(upTo, true).values().iterator();
+			while (folded.hasNext()) {
+				InventoryDelta delta = folded.next();
+				base.merge(key(delta.getTitle(), delta.getFormat()), delta.getDelta(), Integer::sum);
+				baseSequence = delta.getSequence();
+				folded.remove();
+			}
+		}
+	}
+
+	/**
+	 * An origin's copies of every game as of one of its changes, sent in place of the
+	 * changes up to it.
+	 */
+	private static final class OriginSnapshot {
+		private final String origin;
+		private final long sequence;
+		private final Map<String, Integer> copies;
+
+		private OriginSnapshot(String origin, long sequence, Map<String, Integer> copies) {
+			this.origin = origin;
+			this.sequence = sequence;
+			this.copies = copies;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeUTF(origin);
+			out.writeLong(sequence);
+			out.writeInt(copies.size());
+			for (Map.Entry<String, Integer> entry : copies.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue());
+			}
+		}
+
+		private static OriginSnapshot read(DataInputStream in) throws IOException {
+			String origin = in.readUTF();
+			long sequence = in.readLong();
+			int size = in.readInt();
+			Map<String, Integer> copies = new HashMap<>(size * 2);
+			for (int i = 0; i < size; i++) {
+				copies.put(in.readUTF(), in.readInt());
+			}
+			return new OriginSnapshot(origin, sequence, copies);
+		}
+	}
+
+	/**
+	 * One connection to another store, with a queue of messages waiting to be sent.
+	 */
+	private final class Peer {
+		private final String storeId;
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+		// Changes, snapshots, and ACK or RESYNC, which are sent with this node's vector
+		private final BlockingQueue<Object> outbox = new LinkedBlockingQueue<>();
+		private final AtomicBoolean ackQueued = new AtomicBoolean();
+		// Origins this node has asked the peer to resync and not heard from in order since
+		private final Set<String> resyncing = ConcurrentHashMap.newKeySet();
+		// The latest change the peer has applied from each origin
+		private volatile VersionVector acked = new VersionVector();
+		private volatile Thread writer;
+
+		private Peer(String storeId, Socket socket, DataInputStream in, DataOutputStream out) {
+			this.storeId = storeId;
+			this.socket = socket;
+			this.in = in;
+			this.out = out;
+		}
+
+		/**
+		 * Sends everything queued behind the first waiting message, with runs of changes
+		 * sent as one batch.
+		 */
+		private void writeLoop() {
+			List<Object> batch = new ArrayList<>(MAX_BATCH);
+			try {
+				while (!closed) {
+					batch.add(outbox.take());
+					outbox.drainTo(batch, MAX_BATCH - 1);
+					int runStart = 0;
+					for (int i = 0; i <= batch.size(); i++) {
+						Object message = i < batch.size() ? batch.get(i) : null;
+						if (message instanceof InventoryDelta) {
+							continue;
+						}
+						if (i > runStart) {
+							out.writeInt(i - runStart);
+							for (int j = runStart; j < i; j++) {
+								((InventoryDelta) batch.get(j)).write(out);
+							}
+						}
+						if (message != null) {
+							writeControl(message);
+						}
+						runStart = i + 1;
+					}
+					out.flush();
+					batch.clear();
+				}
+			} catch (IOException e) {
+				disconnected(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void writeControl(Object message) throws IOException {
+			if (message instanceof OriginSnapshot) {
+				out.writeInt(SNAPSHOT);
+				((OriginSnapshot) message).write(out);
+				return;
+			}
+			if (message.equals(ACK)) {
+				ackQueued.set(false); // Later changes need another ack
+			}
+			out.writeInt((Integer) message);
+			vector.write(out);
+		}
+
+		private void readLoop() {
+			try {
+				while (!closed) {
+					int count = in.readInt();
+					if (count >= 0) {
+						for (int i = 0; i < count; i++) {
+							onRemoteChange(InventoryDelta.read(in), this);
+						}
+						synchronized (lock) {
+							trim(); // A peer that only relays never acks this node again
+						}
+						queueAck();
+					} else if (count == ACK) {
+						acked = VersionVector.read(in);
+						synchronized (lock) {
+							trim();
+						}
+					} else if (count == RESYNC) {
+						VersionVector seen = VersionVector.read(in);
+						synchronized (lock) {
+							catchUp(this, seen);
+						}
+					} else if (count == SNAPSHOT) {
+						onSnapshot(OriginSnapshot.read(in), this);
+						queueAck();
+					} else {
+						throw new IOException("Unknown replication message: " + count);
+					}
+				}
+			} catch (IOException e) {
+				disconnected(e);
+			}
+		}
+
+		private void queueAck() {
+			if (ackQueued.compareAndSet(false, true)) {
+				outbox.add(ACK);
+			}
+		}
+
+		private void disconnected(IOException e) {
+			if (peers.remove(this) && !closed) {
+				System.err.println("Replication peer " + storeId + " disconnected: " + e.getMessage());
+			}
+			close();
+		}
+
+		private void close() {
+			Thread thread = writer;
+			if (thread != null) {
+				thread.interrupt(); // Wakes it from waiting on an empty outbox
+			}
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closing
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package game.replication;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The latest change applied from each store, so a node can tell a peer exactly which
+ * changes it is missing and drop the ones it has already seen.
+ */
+public class VersionVector {
+	private final Map<String, Long> applied = new ConcurrentHashMap<>();
+
+	/**
+	 * @param origin A store id.
+	 * @return The sequence of the latest change applied from that store, or 0 for none.
+	 */
+	public long get(String origin) {
+		return applied.getOrDefault(origin, 0L);
+	}
+
+	/**
+	 * @param origin A store id.
+	 * @param sequence The sequence of a change just applied from that store.
+	 */
+	void set(String origin, long sequence) {
+		applied.put(origin, sequence);
+	}
+
+	/**
+	 * @param origin A store id.
+	 * @param sequence The sequence of a change known to be applied from that store.
+	 */
+	void advance(String origin, long sequence) {
+		applied.merge(origin, sequence, Math::max);
+	}
+
+	/**
+	 * @return The store ids this vector has seen changes from.
+	 */
+	public Iterable<String> origins() {
+		return applied.keySet();
+	}
+
+	void write(DataOutput out) throws IOException {
+		Map<String, Long> copy = Map.copyOf(applied);
+		out.writeInt(copy.size());
+		for (Map.Entry<String, Long> entry : copy.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeLong(entry.getValue());
+		}
+	}
+
+	static VersionVector read(DataInput in) throws IOException {
+		VersionVector vector = new VersionVector();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			vector.set(in.readUTF(), in.readLong());
+		}
+		return vector;
+	}
+
+	@Override
+	public String toString() {
+		return applied.toString();
+	}
+}
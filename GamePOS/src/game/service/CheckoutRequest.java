@@ -0,0 +1,68 @@
+package game.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One customer's cart as sent by a terminal, scanner or kiosk.
+ */
+public class CheckoutRequest {
+	private final String terminal;
+	private final List<Line> lines = new ArrayList<>();
+
+	/**
+	 * @param terminal The name of the till the sale is rung up on; it numbers the sale.
+	 */
+	public CheckoutRequest(String terminal) {
+		this.terminal = terminal;
+	}
+
+	/**
+	 * @param title The title of the game.
+	 * @param format The format code of the game.
+	 * @param nights The number of nights it is rented for.
+	 * @return This request, for chaining.
+	 */
+	public CheckoutRequest addLine(String title, String format, int nights) {
+		lines.add(new Line(title, format, nights));
+		return this;
+	}
+
+	public String getTerminal() {
+		return terminal;
+	}
+	public List<Line> getLines() {
+		return Collections.unmodifiableList(lines);
+	}
+
+	/**
+	 * One game in the cart.
+	 */
+	public static class Line {
+		private final String title;
+		private final String format;
+		private final int nights;
+
+		/**
+		 * @param title The title of the game.
+		 * @param format The format code of the game.
+		 * @param nights The number of nights it is rented for.
+		 */
+		public Line(String title, String format, int nights) {
+			this.title = title;
+			this.format = format;
+			this.nights = nights;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+		public String getFormat() {
+			return format;
+		}
+		public int getNights() {
+			return nights;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package game.service;
+
+/**
+ * The outcome of one checkout: the sale's number and total, or why it was refused.
+ */
+public class CheckoutResult {
+	private final int transactionNumber;
+	private final long totalCents;
+	private final String error;
+
+	private CheckoutResult(int transactionNumber, long totalCents, String error) {
+		this.transactionNumber = transactionNumber;
+		this.totalCents = totalCents;
+		this.error = error;
+	}
+
+	/**
+	 * @param transactionNumber The number the sale was issued.
+	 * @param totalCents The sale's total in cents.
+	 * @return A completed checkout.
+	 */
+	public static CheckoutResult completed(int transactionNumber, long totalCents) {
+		return new CheckoutResult(transactionNumber, totalCents, null);
+	}
+
+	/**
+	 * @param error Why the checkout was refused; nothing was sold.
+	 * @return A refused checkout.
+	 */
+	public static CheckoutResult refused(String error) {
+		return new CheckoutResult(0, 0, error);
+	}
+
+	public boolean isCompleted() {
+		return error == null;
+	}
+	public int getTransactionNumber() {
+		return transactionNumber;
+	}
+	public long getTotalCents() {
+		return totalCents;
+	}
+	/**
+	 * @return Why the checkout was refused, or null if it completed.
+	 */
+	public String getError() {
+		return error;
+	}
+}
@@ -0,0 +1,223 @@
+package game.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import game.metrics.Metrics;
+import game.model.DailySales;
+import game.model.Format;
+import game.model.FormatBreakdown;
+import game.model.Game;
+
+/**
+ * A plain-text HTTP front end to a {@link PosService} on the loopback interface, for
+ * scanners, kiosks and load tests.
+ * <ul>
+ * <li>POST /checkout?terminal=name (default "http"): one line per game as "title&lt;TAB&gt;format&lt;TAB&gt;nights",
+ * with nights optional and a blank line between carts. Answers one line per cart,
+ * "OK&lt;TAB&gt;number&lt;TAB&gt;totalCents" or "ERROR&lt;TAB&gt;reason".</li>
+ * <li>GET /availability?format=P: "title&lt;TAB&gt;format&lt;TAB&gt;copies" per game in stock.</li>
+ * <li>GET /totals: today's games sold and sales in cents, in total and per format.</li>
+ * <li>GET /metrics: count and latency percentiles of every timed operation.</li>
+ * </ul>
+ * Checkout handlers hand the batch to the service and return; the response is written
+ * when the last cart is on disk, so request threads never wait on the journal.
+ */
+public class PosHttpServer implements Closeable {
+	private static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+	// Numbers the sales of clients that do not name their till
+	static final String DEFAULT_TERMINAL = "http";
+
+	private final PosService service;
+	private final HttpServer server;
+	private final ExecutorService requestThreads;
+
+	/**
+	 * @param service The service to serve.
+	 * @param port The port to listen on, or 0 for any free port.
+	 * @throws IOException If the port cannot be bound.
+	 */
+	public PosHttpServer(PosService service, int port) throws IOException {
+		this.service = service;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.requestThreads = Executors.newFixedThreadPool(2, work -> {
+			Thread thread = new Thread(work, "pos-http");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(requestThreads);
+		server.createContext("/checkout", this::onCheckout);
+		server.createContext("/availability", this::onAvailability);
+		server.createContext("/totals", this::onTotals);
+		server.createContext("/metrics", exchange -> respond(exchange, 200, Metrics.dump()));
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * @return The port listened on.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	private void onCheckout(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			respond(exchange, 405, "Use POST\n");
+			return;
+		}
+		List<CheckoutRequest> requests;
+		try {
+			String terminal = query(exchange).getOrDefault("terminal", DEFAULT_TERMINAL);
+			requests = parseCarts(readBody(exchange), terminal);
+		} catch (IllegalArgumentException e) {
+			respond(exchange, 400, e.getMessage() + "\n");
+			return;
+		}
+		service.checkoutAll(requests).whenComplete((results, error) -> {
+			try {
+				if (error != null) {
+					respond(exchange, 500, error.toString() + "\n");
+					return;
+				}
+				StringBuilder body = new StringBuilder();
+				for (CheckoutResult result : results) {
+					if (result.isCompleted()) {
+						body.append("OK\t").append(result.getTransactionNumber()).append('\t').append(result.getTotalCents());
+					} else {
+						body.append("ERROR\t").append(result.getError());
+					}
+					body.append('\n');
+				}
+				respond(exchange, 200, body.toString());
+			} catch (IOException e) {
+				System.err.println("Cannot send checkout response: " + e.getMessage());
+			}
+		});
+	}
+
+	private void onAvailability(HttpExchange exchange) throws IOException {
+		StringBuilder body = new StringBuilder();
+		for (Game game : service.getAvailability(query(exchange).get("format"))) {
+			body.append(game.getTitle()).append('\t').append(game.getFormat()).append('\t')
+					.append(game.getNumberOfCopies()).append('\n');
+		}
+		respond(exchange, 200, body.toString());
+	}
+
+	private void onTotals(HttpExchange exchange) throws IOException {
+		DailySales today = service.getTodaysSales();
+		StringBuilder body = new StringBuilder();
+		body.append("games\t").append(today.getGamesSold()).append('\n');
+		body.append("sales\t").append(today.getTotalSales()).append('\n');
+		FormatBreakdown byFormat = service.getSalesByFormat();
+		for (Format format : Format.values()) {
+			if (byFormat.getGamesSold(format) > 0) {
+				body.append(format.getCode()).append('\t').append(byFormat.getGamesSold(format)).append('\t')
+						.append(byFormat.getSales(format)).append('\n');
+			}
+		}
+		respond(exchange, 200, body.toString());
+	}
+
+	/**
+	 * @param body The request body.
+	 * @param terminal The till the carts are rung up on.
+	 * @return The carts, in order.
+	 * @throws IllegalArgumentException If a line is malformed.
+	 */
+	static List<CheckoutRequest> parseCarts(String body, String terminal) {
+		List<CheckoutRequest> requests = new ArrayList<>();
+		CheckoutRequest current = null;
+		int lineNumber = 0;
+		for (String line : body.split("\r?\n", -1)) {
+			lineNumber++;
+			if (line.isBlank()) {
+				current = null;
+				continue;
+			}
+			String[] parts = line.split("\t");
+			if (parts.length < 2 || parts.length > 3) {
+				throw new IllegalArgumentException("Invalid line format in line " + lineNumber + ": " + line);
+			}
+			int nights;
+			try {
+				nights = parts.length == 3 ? Integer.parseInt(parts[2].trim()) : 1;
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number format in line " + lineNumber + ": " + line);
+			}
+			if (nights < 1) {
+				throw new IllegalArgumentException("Invalid value; Nights less than 1 in line " + lineNumber + ": " + line);
+			}
+			if (current == null) {
+				current = new CheckoutRequest(terminal);
+				requests.add(current);
+			}
+			current.addLine(parts[0], parts[1].trim(), nights);
+		}
+		return requests;
+	}
+
+	private static String readBody(HttpExchange exchange) throws IOException {
+		try (InputStream in = exchange.getRequestBody()) {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				if (body.size() + read > MAX_BODY_BYTES) {
+					throw new IllegalArgumentException("Request body too large");
+				}
+				body.write(buffer, 0, read);
+			}
+			return body.toString(StandardCharsets.UTF_8);
+		}
+	}
+
+	private static Map<String, String> query(HttpExchange exchange) {
+		Map<String, String> parameters = new HashMap<>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String pair : query.split("&")) {
+				int equals = pair.indexOf('=');
+				if (equals > 0) {
+					parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+							URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return parameters;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(1);
+		requestThreads.shutdownNow();
+	}
+}
@@ -0,0 +1,60 @@
+package game.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+import game.metrics.Metrics;
+import game.model.Format;
+import game.model.InventoryWatcher;
+import game.model.Store;
+import game.persistence.StorePersistence;
+
+/**
+ * Runs the store without the JavaFX window, serving checkouts over HTTP. Reads the same
+ * files as the desktop app; the port comes from -Dpos.http (default 8080). Timers are
+ * appended to metrics.log every -Dpos.metricsMinutes (default 5).
+ */
+public class PosServer {
+
+	public static void main(String[] args) throws Exception {
+		Metrics.startLogging("metrics.log", Long.getLong("pos.metricsMinutes", 5));
+		if (Files.exists(Paths.get("formats.txt"))) {
+			Format.loadFromFile("formats.txt");
+		}
+		Store store = new Store();
+		store.loadInventoryFromFile("game_inventory.txt");
+		if (Files.exists(Paths.get("pricing.txt"))) {
+			store.getPricing().loadFromFile("pricing.txt");
+		}
+		StorePersistence persistence = StorePersistence.open(store,
+				Paths.get("game_snapshot.dat"), Paths.get("game_journal.dat"), 15);
+		InventoryWatcher watcher = Files.exists(Paths.get("game_inventory.txt"))
+				? new InventoryWatcher(store, Paths.get("game_inventory.txt")) : null;
+		if (watcher != null) {
+			watcher.start();
+		}
+		PosService service = new PosService(store, Runtime.getRuntime().availableProcessors() * 4);
+		PosHttpServer http = new PosHttpServer(service, Integer.getInteger("pos.http", 8080));
+		http.start();
+		System.out.println("Serving checkouts on port " + http.getPort());
+
+		CountDownLatch stopped = new CountDownLatch(1);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			http.close();
+			service.close();
+			try {
+				if (watcher != null) {
+					watcher.close();
+				}
+				persistence.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			Metrics.stopLogging("metrics.log");
+			stopped.countDown();
+		}));
+		stopped.await();
+	}
+}
@@ -0,0 +1,219 @@
+package game.service;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.metrics.Metrics;
+import game.metrics.Timer;
+import game.model.DailySales;
+import game.model.FormatBreakdown;
+import game.model.Game;
+import game.model.Reservation;
+import game.model.Store;
+import game.model.TransactionNumbers;
+
+/**
+ * The point-of-sale flow without a user interface: checkouts, availability and reports
+ * over a {@link Store}. Checkouts run on a worker pool and complete asynchronously, so a
+ * caller can submit a whole batch at once; concurrent checkouts also share the journal's
+ * disk flushes.
+ */
+public class PosService implements Closeable {
+	// Holding and committing one cart; refused carts count as errors
+	private static final Timer checkoutTimer = Metrics.timer("service.checkout");
+	// Tills beyond this many are forgotten, least recently used first
+	static final int MAX_TERMINALS = 256;
+	private static final long TERMINAL_IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+	private final Store store;
+	private final ExecutorService workers;
+	private final Map<String, NamedTerminal> terminals = new ConcurrentHashMap<>();
+
+	/**
+	 * @param store The store to sell from.
+	 * @param threads The number of checkouts that may wait on the journal at once.
+	 */
+	public PosService(Store store, int threads) {
+		this.store = store;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(threads, work -> {
+			Thread thread = new Thread(work, "pos-checkout-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @param request The cart to check out.
+	 * @return The outcome, once the sale is on disk or has been refused.
+	 */
+	public CompletableFuture<CheckoutResult> checkout(CheckoutRequest request) {
+		return CompletableFuture.supplyAsync(() -> checkoutNow(request), workers);
+	}
+
+	/**
+	 * @param requests The carts to check out; each succeeds or fails on its own.
+	 * @return The outcomes, in request order.
+	 */
+	public CompletableFuture<List<CheckoutResult>> checkoutAll(List<CheckoutRequest> requests) {
+		List<CompletableFuture<CheckoutResult>> pending = new ArrayList<>(requests.size());
+		for (CheckoutRequest request : requests) {
+			pending.add(checkout(request));
+		}
+		return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			List<CheckoutResult> results = new ArrayList<>(pending.size());
+			for (CompletableFuture<CheckoutResult> result : pending) {
+				results.add(result.join());
+			}
+			return results;
+		});
+	}
+
+	/**
+	 * Holds every copy in the cart and commits them as one sale, or sells nothing.
+	 * 
+	 * @param request The cart to check out.
+	 * @return The outcome.
+	 */
+	public CheckoutResult checkoutNow(CheckoutRequest request) {
+		long start = checkoutTimer.start();
+		CheckoutResult result = ringUp(request);
+		if (result.isCompleted()) {
+			checkoutTimer.stop(start);
+		} else {
+			checkoutTimer.fail(start);
+		}
+		return result;
+	}
+
+	private CheckoutResult ringUp(CheckoutRequest request) {
+		if (request.getLines().isEmpty()) {
+			return CheckoutResult.refused("Empty cart");
+		}
+		Reservation cart = store.getReservations().open();
+		try {
+			for (CheckoutRequest.Line line : request.getLines()) {
+				Game game = store.getGame(line.getTitle(), line.getFormat());
+				if (game == null) {
+					store.getReservations().release(cart);
+					return CheckoutResult.refused("Unknown game: " + line.getTitle() + " (" + line.getFormat() + ")");
+				}
+				long price = store.getPricing().priceOf(game, line.getNights());
+				if (!cart.hold(game, line.getNights(), price)) {
+					store.getReservations().release(cart);
+					return CheckoutResult.refused("Sold out: " + line.getTitle() + " (" + line.getFormat() + ")");
+				}
+			}
+			store.commitReservation(cart, terminalFor(request.getTerminal()));
+			return CheckoutResult.completed(cart.getTransaction().getTransactionNumber(), cart.getTransaction().getTotalCents());
+		} catch (RuntimeException e) {
+			store.getReservations().release(cart);
+			System.err.println("Checkout failed: " + e);
+			return CheckoutResult.refused(e.getMessage() != null ? e.getMessage() : e.toString());
+		}
+	}
+
+	/**
+	 * @param name The name of a till.
+	 * @return The till's source of transaction numbers.
+	 */
+	TransactionNumbers.Terminal terminalFor(String name) {
+		String key = name == null ? "" : name;
+		NamedTerminal terminal = terminals.get(key);
+		if (terminal == null) {
+			if (terminals.size() >= MAX_TERMINALS) {
+				evictIdleTerminals();
+			}
+			terminal = terminals.computeIfAbsent(key, k -> new NamedTerminal(store.newTerminal()));
+		}
+		terminal.lastUsed = System.nanoTime();
+		return terminal.numbers;
+	}
+
+	/**
+	 * Forgets the tills not used for a while, or the least recently used one if every till
+	 * is busy. A forgotten till's unused numbers are skipped; it gets a new block if it
+	 * comes back.
+	 */
+	private synchronized void evictIdleTerminals() {
+		if (terminals.size() < MAX_TERMINALS) {
+			return; // Another checkout has already made room
+		}
+		long now = System.nanoTime();
+		terminals.values().removeIf(terminal -> now - terminal.lastUsed > TERMINAL_IDLE_NANOS);
+		while (terminals.size() >= MAX_TERMINALS) {
+			String oldest = null;
+			long oldestUse = Long.MAX_VALUE;
+			for (Map.Entry<String, NamedTerminal> entry : terminals.entrySet()) {
+				if (oldest == null || entry.getValue().lastUsed - oldestUse < 0) {
+					oldest = entry.getKey();
+					oldestUse = entry.getValue().lastUsed;
+				}
+			}
+			terminals.remove(oldest);
+		}
+	}
+
+	/**
+	 * @return The number of tills with a block of numbers.
+	 */
+	int getTerminalCount() {
+		return terminals.size();
+	}
+
+	private static class NamedTerminal {
+		private final TransactionNumbers.Terminal numbers;
+		private volatile long lastUsed = System.nanoTime();
+
+		NamedTerminal(TransactionNumbers.Terminal numbers) {
+			this.numbers = numbers;
+		}
+	}
+
+	/**
+	 * @param format The format code to filter by, or null for all formats.
+	 * @return The games with copies available, sorted by title.
+	 */
+	public List<Game> getAvailability(String format) {
+		return store.getAvailableGames(format);
+	}
+	/**
+	 * @return Today's running sales counters.
+	 */
+	public DailySales getTodaysSales() {
+		return store.getTodaysSales();
+	}
+	/**
+	 * @return Today's games sold and sales per format.
+	 */
+	public FormatBreakdown getSalesByFormat() {
+		return store.calculateDailySalesByFormat();
+	}
+	public Store getStore() {
+		return store;
+	}
+
+	/**
+	 * Stops taking checkouts and waits briefly for the ones in progress.
+	 */
+	@Override
+	public void close() {
+		workers.shutdown();
+		try {
+			if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+				workers.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class DailySalesTest {
+	private static final long DAY = 20_000;
+
+	private static Transaction sale(long timestamp, String format, long... prices) {
+		Transaction transaction = new Transaction(1, timestamp);
+		for (long price : prices) {
+			transaction.addGame(new Game("Halo", format, 1), 1, price);
+		}
+		return transaction;
+	}
+
+	@Test
+	void dayRunsFromMidnightUpToTheNextMidnight() {
+		DailySales sales = new DailySales(DAY);
+		long start = BusinessDay.startOf(DAY);
+		long end = BusinessDay.startOf(DAY + 1);
+
+		assertTrue(sales.contains(start));
+		assertTrue(sales.contains(end - 1));
+		assertFalse(sales.contains(start - 1));
+		assertFalse(sales.contains(end));
+		assertEquals(DAY, BusinessDay.epochDayOf(end - 1));
+		assertEquals(DAY + 1, BusinessDay.epochDayOf(end));
+	}
+
+	@Test
+	void totalsAddUpExactlyInCents() {
+		DailySales sales = new DailySales(DAY);
+		long start = BusinessDay.startOf(DAY);
+		// Ten cents ten times is where adding doubles drifts
+		for (int i = 0; i < 10; i++) {
+			sales.record(sale(start, "P", 10));
+		}
+		sales.record(sale(start, "X", 199, 1));
+		sales.record(sale(start, "N"));
+
+		assertEquals(12, sales.getGamesSold());
+		assertEquals(300, sales.getTotalSales());
+		assertEquals("$3.00", Money.format(sales.getTotalSales()));
+		FormatBreakdown byFormat = sales.getSalesByFormat();
+		assertEquals(10, byFormat.getGamesSold(Format.fromCode("P")));
+		assertEquals(100, byFormat.getSales(Format.fromCode("P")));
+		assertEquals(2, byFormat.getGamesSold(Format.fromCode("X")));
+		assertEquals(200, byFormat.getSales(Format.fromCode("X")));
+		assertEquals(0, byFormat.getGamesSold(Format.fromCode("N")));
+	}
+
+	@Test
+	void concurrentCheckoutsLoseNoCents() throws InterruptedException {
+		DailySales sales = new DailySales(DAY);
+		long start = BusinessDay.startOf(DAY);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					sales.record(sale(start, "P", 1));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40_000, sales.getGamesSold());
+		assertEquals(40_000, sales.getTotalSales());
+		assertEquals(40_000, sales.getSalesByFormat().getSales(Format.fromCode("P")));
+	}
+
+	@Test
+	void storeRollsOverToANewDayAtMidnight() {
+		Store store = new Store();
+		long midnight = BusinessDay.startOf(DAY + 1);
+		store.addCompletedTransaction(sale(midnight - 1, "P", 250));
+		store.addCompletedTransaction(sale(midnight, "X", 300, 100));
+		store.addCompletedTransaction(sale(midnight + 1, "X", 5));
+
+		List<StoreState.DayTotals> days = store.captureState().getDailySales();
+		assertEquals(2, days.size());
+		StoreState.DayTotals before = days.get(0);
+		StoreState.DayTotals after = days.get(1);
+		assertEquals(DAY, before.getEpochDay());
+		assertEquals(1, before.getGamesSold());
+		assertEquals(250, before.getTotalSales());
+		assertEquals(DAY + 1, after.getEpochDay());
+		assertEquals(3, after.getGamesSold());
+		assertEquals(405, after.getTotalSales());
+		assertEquals(3, after.getSalesByFormat().getGamesSold(Format.fromCode("X")));
+	}
+}
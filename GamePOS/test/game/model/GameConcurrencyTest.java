@@ -0,0 +1,110 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Many terminals renting the same game at once must never sell more copies than exist.
+ */
+class GameConcurrencyTest {
+	private static final int THREADS = 16;
+	private static final int ATTEMPTS_PER_THREAD = 10_000;
+
+	@RepeatedTest(5)
+	void rentingNeverOversells() throws Exception {
+		int stock = 1000;
+		Game game = new Game("Contended", "P", stock);
+		AtomicInteger rented = new AtomicInteger();
+		AtomicInteger lowestSeen = new AtomicInteger(stock);
+		runConcurrently(() -> {
+			for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+				if (game.rentGame()) {
+					rented.incrementAndGet();
+				}
+				lowestSeen.accumulateAndGet(game.getNumberOfCopies(), Math::min);
+			}
+		});
+		assertEquals(stock, rented.get());
+		assertEquals(0, game.getNumberOfCopies());
+		assertTrue(lowestSeen.get() >= 0, "copies went negative: " + lowestSeen.get());
+	}
+
+	@Test
+	void rentingAndReturningKeepsTheStock() throws Exception {
+		int stock = 8;
+		Game game = new Game("Contended", "P", stock);
+		AtomicInteger lowestSeen = new AtomicInteger(stock);
+		AtomicInteger highestSeen = new AtomicInteger(Integer.MIN_VALUE);
+		runConcurrently(() -> {
+			for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+				if (game.rentGame()) {
+					int copies = game.getNumberOfCopies();
+					lowestSeen.accumulateAndGet(copies, Math::min);
+					highestSeen.accumulateAndGet(copies, Math::max);
+					game.returnGame();
+				}
+			}
+		});
+		assertEquals(stock, game.getNumberOfCopies());
+		assertTrue(lowestSeen.get() >= 0, "copies went negative: " + lowestSeen.get());
+		assertTrue(highestSeen.get() < stock, "a rented copy was not taken out of stock");
+	}
+
+	@Test
+	void cartsNeverHoldMoreThanTheStock() throws Exception {
+		int stock = 500;
+		Game game = new Game("Contended", "P", stock);
+		Reservations reservations = new Reservations();
+		AtomicInteger held = new AtomicInteger();
+		try {
+			runConcurrently(() -> {
+				Reservation cart = reservations.open();
+				for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+					if (cart.hold(game, 1, PricingEngine.STANDARD_RATE)) {
+						held.incrementAndGet();
+					}
+				}
+			});
+		} finally {
+			reservations.close();
+		}
+		assertEquals(stock, held.get());
+		assertEquals(0, game.getNumberOfCopies());
+	}
+
+	/**
+	 * Runs the work on every thread at once and waits for all of them.
+	 */
+	private static void runConcurrently(Runnable work) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+					work.run();
+				} catch (Throwable e) {
+					synchronized (failures) {
+						failures.add(e);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(failures.isEmpty(), () -> "worker failed: " + failures);
+	}
+}
@@ -0,0 +1,37 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InventoryLoaderTest {
+	private final InventoryLoader loader = new InventoryLoader(format -> format.equals("P") || format.equals("X"));
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void mappedParserSkipsLinesWithoutATitle() throws IOException {
+		Path file = dir.resolve("inventory.txt");
+		Files.writeString(file, "5,P,\n3,X,   \r\n2,P,Kept Game\n4,X,");
+		List<Game> games = new ArrayList<>();
+
+		assertEquals(1, loader.load(file, false, games::add));
+		assertEquals("Kept Game", games.get(0).getTitle());
+	}
+
+	@Test
+	void lineParserRejectsBlankTitles() {
+		assertNull(loader.parseLine("5,P,", 1));
+		assertNull(loader.parseLine("5,P,   ", 2));
+		assertEquals("Kept Game", loader.parseLine("2, P , Kept Game ", 3).getTitle());
+	}
+}
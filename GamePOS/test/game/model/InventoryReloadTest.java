@@ -0,0 +1,84 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InventoryReloadTest {
+	private static final String TITLE = "Reloaded Game";
+
+	@TempDir
+	Path dir;
+	private Store store;
+
+	@BeforeEach
+	void loadStore() throws IOException {
+		Path inventory = dir.resolve("inventory.txt");
+		Files.writeString(inventory, "3,P," + TITLE + "\n");
+		store = new Store();
+		store.loadInventoryFromFile(inventory.toString());
+	}
+
+	@Test
+	void delistedGameStaysUntilItsLastCopyComesBack() {
+		Game game = store.getGame(TITLE, "P");
+		Transaction sale = new Transaction();
+		assertTrue(game.rentGame());
+		assertTrue(game.rentGame());
+		sale.addGame(game);
+		sale.addGame(game);
+		store.addCompletedTransaction(sale);
+
+		store.applyInventoryChanges(List.of(), List.of(new Game(TITLE, "P", -3)));
+		assertEquals(0, game.getNumberOfCopies());
+		assertNotNull(store.getGame(TITLE, "P"));
+
+		store.returnGame(TITLE, "P");
+		assertEquals(0, game.getNumberOfCopies());
+		assertNotNull(store.getGame(TITLE, "P"));
+
+		store.returnGame(TITLE, "P");
+		assertEquals(0, game.getNumberOfCopies());
+		assertNull(store.getGame(TITLE, "P"));
+		assertTrue(store.searchGames("Reloaded", null).isEmpty());
+	}
+
+	@Test
+	void cutBelowTheCopiesOutNeverGoesNegative() {
+		Game game = store.getGame(TITLE, "P");
+		Reservation cart = store.getReservations().open();
+		assertTrue(cart.hold(game, 1, 200));
+		assertTrue(cart.hold(game, 1, 200));
+
+		store.applyInventoryChanges(List.of(new Game(TITLE, "P", -2)), List.of());
+		assertEquals(0, game.getNumberOfCopies());
+
+		store.getReservations().release(cart);
+		assertEquals(1, game.getNumberOfCopies());
+	}
+
+	@Test
+	void relistingPaysOffTheCopiesStillOut() {
+		Game game = store.getGame(TITLE, "P");
+		Reservation cart = store.getReservations().open();
+		assertTrue(cart.hold(game, 1, 200));
+
+		store.applyInventoryChanges(List.of(), List.of(new Game(TITLE, "P", -3)));
+		store.applyInventoryChanges(List.of(new Game(TITLE, "P", 2)), List.of());
+		assertEquals(1, game.getNumberOfCopies());
+
+		store.getReservations().release(cart);
+		assertEquals(2, game.getNumberOfCopies());
+		assertNotNull(store.getGame(TITLE, "P"));
+	}
+}
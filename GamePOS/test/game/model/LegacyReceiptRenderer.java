@@ -0,0 +1,45 @@
+package game.model;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The receipt layout as Transaction.getReceipt() built it before ReceiptRenderer, with
+ * String.format, a new SimpleDateFormat and DecimalFormat per receipt, and prices read
+ * from the transaction's lines. Kept as the reference the renderer must match and as
+ * the baseline for ReceiptBenchmark.
+ */
+public final class LegacyReceiptRenderer {
+
+	private LegacyReceiptRenderer() {
+	}
+
+	/**
+	 * @param transaction A committed transaction, rented for one night per line.
+	 * @return The receipt as the old code printed it.
+	 */
+	public static String render(Transaction transaction) {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		DecimalFormat priceFormat = new DecimalFormat("$0.00");
+		StringBuilder receipt = new StringBuilder();
+
+		receipt.append("Transaction Date: ").append(dateFormat.format(new Date(transaction.getTimestamp()))).append("\n");
+		receipt.append("Transaction Number: ").append(String.format("%04d", transaction.getTransactionNumber())).append("\n");
+		receipt.append(String.format("%10s %34s %11s\n", "Title", "Format", "Price"));
+		receipt.append(String.format("%15s\n", "----------------------------------------------------------"));
+		List<Game> games = transaction.getGamesList();
+		for (int i = 0; i < games.size(); i++) {
+			receipt.append(String.format("%-40s %-10s %s\n",
+					games.get(i).getTitle(),
+					games.get(i).getFormat(),
+					priceFormat.format(transaction.getLinePrice(i) / 100.0)));
+		}
+		receipt.append("\n").append(String.format("%1s %51s",
+				"Total",
+				priceFormat.format(transaction.getTotalCents() / 100.0)));
+
+		return receipt.toString();
+	}
+}
@@ -0,0 +1,57 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+	@Test
+	void parsesDollarAmountsIntoCents() {
+		assertEquals(250, Money.parse("2.50"));
+		assertEquals(250, Money.parse("$2.50"));
+		assertEquals(250, Money.parse(" 2.5 "));
+		assertEquals(200, Money.parse("2"));
+		assertEquals(250, Money.parse("2.500"));
+		assertEquals(1, Money.parse("0.01"));
+		assertEquals(-125, Money.parse("-1.25"));
+	}
+
+	@Test
+	void rejectsFractionsOfACentAndNonNumbers() {
+		assertThrows(IllegalArgumentException.class, () -> Money.parse("2.505"));
+		assertThrows(IllegalArgumentException.class, () -> Money.parse("0.001"));
+		assertThrows(IllegalArgumentException.class, () -> Money.parse("two"));
+		assertThrows(IllegalArgumentException.class, () -> Money.parse(""));
+		assertThrows(IllegalArgumentException.class, () -> Money.parse("$"));
+		assertThrows(IllegalArgumentException.class, () -> Money.parse("99999999999999999999"));
+	}
+
+	@Test
+	void formatsCentsAsDollarsAndCents() {
+		assertEquals("$0.00", Money.format(0));
+		assertEquals("$0.05", Money.format(5));
+		assertEquals("$0.50", Money.format(50));
+		assertEquals("$2.00", Money.format(200));
+		assertEquals("$1234.56", Money.format(123456));
+		assertEquals("$92233720368547758.07", Money.format(Long.MAX_VALUE));
+	}
+
+	@Test
+	void appendsNegativeAmountsWithALeadingMinus() {
+		StringBuilder out = new StringBuilder("Refund: ");
+		Money.appendTo(out, -5);
+		assertEquals("Refund: -$0.05", out.toString());
+		assertEquals("-$2.50", Money.format(-250));
+		assertEquals("-$0.99", Money.format(-99));
+		assertEquals("-$92233720368547758.08", Money.format(Long.MIN_VALUE));
+	}
+
+	@Test
+	void formatThenParseGivesBackTheSameCents() {
+		for (long cents : new long[] { 0, 1, 9, 10, 99, 100, 101, 199_99, -1, -100, -12_345 }) {
+			assertEquals(cents, Money.parse(Money.format(cents).replace("$", "")));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PricingEngineTest {
+	private final Game halo = new Game("Halo", "X", 1);
+	private final Game tetris = new Game("Tetris", "N", 1);
+
+	@Test
+	void chargesTheRateForEveryNight() {
+		PricingEngine pricing = new PricingEngine();
+		assertEquals(PricingEngine.STANDARD_RATE, pricing.priceOf(halo, 1));
+		assertEquals(3 * PricingEngine.STANDARD_RATE, pricing.priceOf(halo, 3));
+		assertEquals(7 * 199, new PricingEngine(199).priceOf(tetris, 7));
+	}
+
+	@Test
+	void titleRateWinsOverFormatRateWhichWinsOverTheDefault() {
+		PricingEngine pricing = new PricingEngine(200);
+		pricing.setFormatRate(Format.fromCode("X"), 250);
+		assertEquals(500, pricing.priceOf(halo, 2));
+		assertEquals(400, pricing.priceOf(tetris, 2));
+
+		pricing.setTitleRate("Halo", 99);
+		assertEquals(198, pricing.priceOf(halo, 2));
+		assertEquals(250, pricing.priceOf(new Game("Gears", "X", 1), 1));
+
+		pricing.setDefaultRate(0);
+		assertEquals(0, pricing.priceOf(tetris, 5));
+	}
+
+	@Test
+	void rejectsRentalsUnderANightNegativeRatesAndOverflow() {
+		PricingEngine pricing = new PricingEngine();
+		assertThrows(IllegalArgumentException.class, () -> pricing.priceOf(halo, 0));
+		assertThrows(IllegalArgumentException.class, () -> pricing.priceOf(halo, -1));
+		assertThrows(IllegalArgumentException.class, () -> pricing.setDefaultRate(-1));
+		assertThrows(IllegalArgumentException.class, () -> pricing.setTitleRate("Halo", -1));
+		assertThrows(IllegalArgumentException.class, () -> new PricingEngine(-200));
+
+		pricing.setTitleRate("Halo", Long.MAX_VALUE / 2);
+		assertThrows(ArithmeticException.class, () -> pricing.priceOf(halo, 3));
+	}
+
+	@Test
+	void loadsRatesFromAFileAndSkipsBadLines(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("rates.txt");
+		Files.write(file, List.of(
+				"default,1.50",
+				"format,X,$2.25",
+				"title,Tetris,0.99",
+				"title,Halo,2.505",
+				"format,Q,1.00",
+				"nonsense"));
+		PricingEngine pricing = new PricingEngine();
+		pricing.loadFromFile(file.toString());
+
+		assertEquals(450, pricing.priceOf(halo, 2));
+		assertEquals(297, pricing.priceOf(tetris, 3));
+		assertEquals(150, pricing.priceOf(new Game("Zelda", "N", 1), 1));
+	}
+}
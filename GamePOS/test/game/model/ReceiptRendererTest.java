@@ -0,0 +1,25 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ReceiptRendererTest {
+
+	@Test
+	void matchesTheOldLayoutCharacterForCharacter() {
+		Random random = new Random(14);
+		String[] titles = { "Halo", "The Legend of Zelda: Breath of the Wild", "A Title Longer Than The Forty Column Title Field", "" };
+		for (int items = 0; items <= 20; items++) {
+			Transaction transaction = new Transaction(1 + random.nextInt(20000), random.nextLong() >>> 24);
+			for (int i = 0; i < items; i++) {
+				Format format = Format.fromId(random.nextInt(Format.count()));
+				long price = random.nextInt(5) == 0 ? 200 : random.nextInt(1_000_000);
+				transaction.addGame(new Game(titles[random.nextInt(titles.length)], format.getCode(), 1), 1, price);
+			}
+			assertEquals(LegacyReceiptRenderer.render(transaction), ReceiptRenderer.render(transaction));
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RentalLedgerTest {
+	private static final long DAY = 20_000;
+	// Mid-morning, well clear of either midnight
+	private static final long RENTED_AT = BusinessDay.startOf(DAY) + 10 * 3_600_000L;
+
+	private static Rental rent(RentalLedger ledger, Game game, int number, int nights) {
+		Rental rental = new Rental(game, number, RENTED_AT, Rental.dueAt(RENTED_AT, nights));
+		ledger.add(rental);
+		return rental;
+	}
+
+	@Test
+	void copyIsDueByTheEndOfItsLastNight() {
+		assertEquals(BusinessDay.startOf(DAY + 2), Rental.dueAt(RENTED_AT, 1));
+		assertEquals(BusinessDay.startOf(DAY + 4), Rental.dueAt(RENTED_AT, 3));
+	}
+
+	@Test
+	void rentalTurnsFromDueTodayToOverdueAtItsDueTime() {
+		RentalLedger ledger = new RentalLedger();
+		Rental rental = rent(ledger, new Game("Halo", "X", 1), 1, 1);
+		long due = rental.getDueAt();
+
+		assertTrue(ledger.getDueToday(RENTED_AT).isEmpty());
+		assertTrue(ledger.getOverdue(RENTED_AT).isEmpty());
+
+		assertEquals(List.of(rental), ledger.getDueToday(BusinessDay.startOf(DAY + 1)));
+		assertEquals(List.of(rental), ledger.getDueToday(due - 1));
+		assertTrue(ledger.getOverdue(due - 1).isEmpty());
+		assertFalse(rental.isOverdue(due - 1));
+
+		assertEquals(List.of(rental), ledger.getOverdue(due));
+		assertTrue(ledger.getDueToday(due).isEmpty());
+		assertTrue(rental.isOverdue(due));
+	}
+
+	@Test
+	void queriesSplitRentalsByDueTimeInOrder() {
+		RentalLedger ledger = new RentalLedger();
+		Game game = new Game("Halo", "X", 4);
+		Rental threeNights = rent(ledger, game, 1, 3);
+		Rental oneNight = rent(ledger, game, 2, 1);
+		Rental twoNights = rent(ledger, game, 3, 2);
+		Rental alsoTwoNights = rent(ledger, game, 4, 2);
+		long now = BusinessDay.startOf(DAY + 2) + 1;
+
+		assertEquals(List.of(oneNight), ledger.getOverdue(now));
+		assertEquals(List.of(twoNights, alsoTwoNights), ledger.getDueToday(now));
+		assertEquals(List.of(oneNight, twoNights, alsoTwoNights), ledger.getOverdue(threeNights.getDueAt() - 1));
+		assertEquals(List.of(oneNight, twoNights, alsoTwoNights, threeNights), ledger.getOutstanding());
+	}
+
+	@Test
+	void returnedRentalsLeaveEveryQuery() {
+		RentalLedger ledger = new RentalLedger();
+		Game halo = new Game("Halo", "X", 2);
+		Game zelda = new Game("Zelda", "N", 1);
+		Rental later = rent(ledger, halo, 1, 3);
+		Rental sooner = rent(ledger, halo, 2, 1);
+		Rental other = rent(ledger, zelda, 3, 1);
+		long returnedAt = RENTED_AT + 1000;
+
+		// The copy due back soonest is the one closed
+		assertSame(sooner, ledger.close(halo, returnedAt));
+		assertEquals(returnedAt, sooner.getReturnedAt());
+		assertFalse(sooner.isOverdue(sooner.getDueAt()));
+		assertEquals(List.of(later), ledger.getOutstanding(halo));
+		assertEquals(List.of(other), ledger.getOverdue(sooner.getDueAt()));
+		assertEquals(2, ledger.size());
+
+		assertSame(later, ledger.close(halo, returnedAt));
+		assertSame(other, ledger.close(zelda, returnedAt));
+		assertNull(ledger.close(halo, returnedAt));
+		assertEquals(0, ledger.size());
+		assertTrue(ledger.getOverdue(Long.MAX_VALUE - 1).isEmpty());
+		assertTrue(ledger.getOutstanding().isEmpty());
+	}
+
+	@Test
+	void saleOpensOneRentalPerLine() {
+		RentalLedger ledger = new RentalLedger();
+		Game game = new Game("Halo", "X", 2);
+		Transaction transaction = new Transaction(7, RENTED_AT);
+		transaction.addGame(game, 1, 200);
+		transaction.addGame(game, 2, 400);
+		ledger.open(transaction);
+
+		List<Rental> out = ledger.getOutstanding(game);
+		assertEquals(2, out.size());
+		assertEquals(Rental.dueAt(RENTED_AT, 1), out.get(0).getDueAt());
+		assertEquals(Rental.dueAt(RENTED_AT, 2), out.get(1).getDueAt());
+		assertEquals(7, out.get(1).getTransactionNumber());
+	}
+}
@@ -0,0 +1,51 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ReservationTest {
+	private static final long HOLD_MILLIS = 1000;
+
+	@Test
+	void emptyCartNeverExpires() {
+		Reservation cart = new Reservation(HOLD_MILLIS);
+
+		assertEquals(Long.MAX_VALUE, cart.getDeadline());
+		assertFalse(cart.expireIfDue(System.currentTimeMillis() + 10 * HOLD_MILLIS));
+		assertTrue(cart.isOpen());
+		assertFalse(cart.isExpiredWithGames());
+	}
+
+	@Test
+	void holdTimerStartsOnTheFirstGameAndRestartsOnLaterOnes() throws InterruptedException {
+		Game game = new Game("Held Game", "P", 2);
+		Reservation cart = new Reservation(HOLD_MILLIS);
+
+		long before = System.currentTimeMillis();
+		assertTrue(cart.hold(game, 1, 200));
+		long firstDeadline = cart.getDeadline();
+		assertTrue(firstDeadline >= before + HOLD_MILLIS);
+
+		Thread.sleep(5);
+		assertTrue(cart.hold(game, 1, 200));
+		assertTrue(cart.getDeadline() > firstDeadline);
+
+		assertTrue(cart.expireIfDue(cart.getDeadline()));
+		assertTrue(cart.isExpiredWithGames());
+		assertEquals(2, game.getNumberOfCopies());
+	}
+
+	@Test
+	void saleIsStampedWhenItCommits() throws InterruptedException {
+		Reservation cart = new Reservation(HOLD_MILLIS);
+		long opened = cart.getTransaction().getTimestamp();
+		cart.hold(new Game("Held Game", "P", 1), 1, 200);
+
+		Thread.sleep(5);
+		cart.commit(() -> { });
+		assertTrue(cart.getTransaction().getTimestamp() > opened);
+	}
+}
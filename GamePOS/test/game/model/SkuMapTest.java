@@ -0,0 +1,111 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SkuMapTest {
+
+	@Test
+	void missingKeysGiveNull() {
+		SkuMap<String> map = new SkuMap<>();
+		assertNull(map.get(0));
+		assertNull(map.get(-1));
+		assertNull(map.remove(42));
+
+		map.put(42, "Halo");
+		assertNull(map.get(43));
+		assertNull(map.get(-1));
+		assertNull(map.remove(43));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void putReplacesAndReturnsThePreviousValue() {
+		SkuMap<String> map = new SkuMap<>();
+		assertNull(map.put(7, "Halo"));
+		assertEquals("Halo", map.put(7, "Halo 2"));
+		assertEquals("Halo 2", map.get(7));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	void removingAKeyLeavesTheRestOfItsProbeChainReachable() {
+		SkuMap<Long> map = new SkuMap<>();
+		// Eleven keys in sixteen slots must share probe chains
+		List<Long> keys = new ArrayList<>();
+		for (long key = 0; key < 11; key++) {
+			keys.add(key << 8);
+			map.put(key << 8, key);
+		}
+		for (long removed : keys) {
+			assertEquals(removed >> 8, map.remove(removed));
+			assertNull(map.get(removed));
+			for (long key : keys) {
+				if (key != removed) {
+					assertEquals(key >> 8, map.get(key));
+				}
+			}
+			assertEquals(10, map.size());
+			assertNull(map.put(removed, removed >> 8));
+			assertEquals(11, map.size());
+		}
+	}
+
+	@Test
+	void growsWithoutLosingKeys() {
+		SkuMap<Long> map = new SkuMap<>();
+		for (long key = 0; key < 10_000; key++) {
+			map.put(TitleRegistry.skuKey((int) key, Format.fromId((int) (key % Format.count()))), key);
+		}
+		assertEquals(10_000, map.size());
+		for (long key = 0; key < 10_000; key++) {
+			assertEquals(key, map.get(TitleRegistry.skuKey((int) key, Format.fromId((int) (key % Format.count())))));
+		}
+		List<Long> values = map.values();
+		Collections.sort(values);
+		assertEquals(10_000, values.size());
+		assertEquals(9_999, values.get(9_999));
+	}
+
+	@Test
+	void deleteThenReinsertKeepsSizeAndLookupsRight() {
+		SkuMap<Long> map = new SkuMap<>();
+		for (long key = 0; key < 1000; key++) {
+			map.put(key, key);
+		}
+		for (long key = 0; key < 1000; key += 2) {
+			assertEquals(key, map.remove(key));
+			assertNull(map.remove(key));
+		}
+		assertEquals(500, map.size());
+		for (long key = 0; key < 1000; key++) {
+			assertEquals(key % 2 == 0 ? null : (Long) key, map.get(key));
+		}
+		for (long key = 0; key < 1000; key += 2) {
+			assertNull(map.put(key, -key));
+		}
+		assertEquals(1000, map.size());
+		assertEquals(-998L, map.get(998));
+	}
+
+	@Test
+	void churnOfShortLivedKeysKeepsTheTableUsable() {
+		SkuMap<Long> map = new SkuMap<>();
+		map.put(1, 1L);
+		// Each removal leaves a tombstone; the table is rebuilt rather than filling with them
+		for (long key = 2; key < 100_000; key++) {
+			map.put(key, key);
+			map.remove(key);
+		}
+		assertEquals(1, map.size());
+		assertEquals(1L, map.get(1));
+		assertNull(map.get(99_999));
+		assertEquals(List.of(1L), map.values());
+	}
+}
@@ -0,0 +1,81 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+class TitleRegistryTest {
+
+	@Test
+	void internHandsOutDenseIdsOncePerTitle() {
+		TitleRegistry titles = new TitleRegistry();
+		assertEquals(0, titles.intern("Halo"));
+		assertEquals(1, titles.intern("Tetris"));
+		assertEquals(0, titles.intern("Halo"));
+		assertEquals(0, titles.idOf("Halo"));
+		assertEquals("Tetris", titles.titleOf(1));
+	}
+
+	@Test
+	void missingTitlesAndIdsAreReported() {
+		TitleRegistry titles = new TitleRegistry();
+		titles.intern("Halo");
+		assertEquals(-1, titles.idOf("Tetris"));
+		assertNull(titles.titleOf(1));
+		assertNull(titles.titleOf(-1));
+		assertNull(titles.titleOf(Integer.MAX_VALUE));
+	}
+
+	@Test
+	void growsPastItsInitialCapacity() {
+		TitleRegistry titles = new TitleRegistry();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, titles.intern("Title " + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("Title " + i, titles.titleOf(i));
+			assertEquals(i, titles.idOf("Title " + i));
+		}
+	}
+
+	@Test
+	void skuKeysUnpackToTheirTitleAndFormat() {
+		for (int titleId : new int[] { 0, 1, 255, 256, 1 << 20, Integer.MAX_VALUE }) {
+			for (int formatId = 0; formatId < Format.count(); formatId++) {
+				Format format = Format.fromId(formatId);
+				long sku = TitleRegistry.skuKey(titleId, format);
+				assertEquals(titleId, TitleRegistry.titleIdOf(sku));
+				assertEquals(format, TitleRegistry.formatOf(sku));
+			}
+		}
+	}
+
+	@Test
+	void concurrentInternsAgreeOnEveryId() throws InterruptedException {
+		TitleRegistry titles = new TitleRegistry();
+		Set<Integer> ids = ConcurrentHashMap.newKeySet();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 5000; i++) {
+					ids.add(titles.intern("Title " + i));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(5000, ids.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals("Title " + i, titles.titleOf(titles.idOf("Title " + i)));
+			assertTrue(ids.contains(i));
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+class TitleSearchIndexTest {
+	private static final String[] QUERIES = { "", "a", "st", "sta", "star", "ar s", "legend 1", "quest 9", "zzz" };
+
+	@Test
+	void incrementalUpdatesMatchAFreshBuild() {
+		Random random = new Random(7);
+		TreeSet<String> stocked = new TreeSet<>();
+		for (int i = 0; i < 200; i++) {
+			stocked.add(title(random));
+		}
+		TitleSearchIndex index = new TitleSearchIndex(stocked);
+
+		for (int round = 0; round < 2000; round++) {
+			String title = title(random);
+			if (random.nextInt(3) == 0 && !stocked.isEmpty()) {
+				title = new ArrayList<>(stocked).get(random.nextInt(stocked.size()));
+				stocked.remove(title);
+				index.remove(title);
+			} else {
+				stocked.add(title);
+				index.add(title);
+			}
+			if (round % 100 == 0) {
+				assertSameResults(new TitleSearchIndex(stocked), index, stocked.size());
+			}
+		}
+		assertSameResults(new TitleSearchIndex(stocked), index, stocked.size());
+	}
+
+	@Test
+	void searchIgnoresCaseAndKeepsTitleOrder() {
+		TitleSearchIndex index = new TitleSearchIndex(List.of("Star Quest", "Dragon Star"));
+		index.add("Astral Racer");
+		index.add("A Star Is Born");
+
+		assertEquals(List.of("A Star Is Born", "Dragon Star", "Star Quest"), index.search("STAR"));
+		assertEquals(List.of("A Star Is Born", "Astral Racer", "Dragon Star", "Star Quest"), index.search("st"));
+	}
+
+	private static void assertSameResults(TitleSearchIndex expected, TitleSearchIndex actual, int size) {
+		assertEquals(size, actual.size());
+		for (String query : QUERIES) {
+			assertEquals(expected.search(query), actual.search(query), "query \"" + query + "\"");
+		}
+	}
+
+	private static String title(Random random) {
+		String[] words = { "Star", "Legend", "Quest", "Racer", "Astral" };
+		return String.format(Locale.ROOT, "%s %s %d", words[random.nextInt(words.length)],
+				words[random.nextInt(words.length)], random.nextInt(50));
+	}
+}
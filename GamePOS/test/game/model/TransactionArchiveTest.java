@@ -0,0 +1,142 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TransactionArchiveTest {
+	private static final long START = BusinessDay.startOf(20_000);
+	// Lines in the large sale; its rows alone span several 4 KB pages of a direct buffer
+	private static final int LARGE_SALE_LINES = 600;
+
+	private final TitleRegistry titles = new TitleRegistry();
+	private final Map<Long, Game> games = new HashMap<>();
+
+	private long skuOf(Game game) {
+		long sku = TitleRegistry.skuKey(titles.intern(game.getTitle()), game.getFormatType());
+		games.putIfAbsent(sku, game);
+		return sku;
+	}
+
+	/**
+	 * @return A day of sales: one with no lines, one far larger than the rest, and many small ones.
+	 */
+	private static List<Transaction> sales() {
+		String[] names = { "Halo", "The Legend of Zelda: Breath of the Wild", "Tetris" };
+		String[] formats = { "P", "X", "N" };
+		List<Transaction> sales = new ArrayList<>();
+		sales.add(new Transaction(1, START));
+		Transaction large = new Transaction(2, START + 1000);
+		for (int line = 0; line < LARGE_SALE_LINES; line++) {
+			large.addGame(new Game(names[line % 3], formats[line % 2], 1), 1 + line % 7, 200L * (1 + line % 7) + line);
+		}
+		sales.add(large);
+		for (int i = 0; i < 300; i++) {
+			Transaction sale = new Transaction(3 + i, START + 2000 + i * 10L);
+			for (int line = 0; line <= i % 3; line++) {
+				sale.addGame(new Game(names[(i + line) % 3], formats[i % 3], 1), 1, 199 + line);
+			}
+			sales.add(sale);
+		}
+		return sales;
+	}
+
+	private void assertSameSales(List<Transaction> expected, List<Transaction> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getTransactionNumber(), actual.get(i).getTransactionNumber());
+			assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+			assertEquals(expected.get(i).getTotalCents(), actual.get(i).getTotalCents());
+			assertEquals(expected.get(i).getReceipt(), actual.get(i).getReceipt());
+		}
+	}
+
+	private void roundTrip(boolean offHeap) {
+		List<Transaction> sales = sales();
+		TransactionArchive archive = new TransactionArchive(sales, this::skuOf, offHeap);
+		assertEquals(offHeap, archive.isOffHeap());
+		assertEquals(sales.size(), archive.getTransactionCount());
+
+		List<Transaction> restored = new ArrayList<>();
+		archive.collect(Long.MIN_VALUE, Long.MAX_VALUE, games::get, restored);
+		assertSameSales(sales, restored);
+		assertTrue(restored.get(0).getGamesList().isEmpty());
+		assertEquals(LARGE_SALE_LINES, restored.get(1).getGamesList().size());
+
+		// A range holding only the large sale brings back all of its lines and nothing else
+		List<Transaction> large = new ArrayList<>();
+		archive.collect(START + 1000, START + 1001, games::get, large);
+		assertSameSales(sales.subList(1, 2), large);
+	}
+
+	@Test
+	void roundTripsOnHeap() {
+		roundTrip(false);
+	}
+
+	@Test
+	void roundTripsOffHeap() {
+		roundTrip(true);
+	}
+
+	@Test
+	void copiesAndRebuiltColumnsKeepEveryRow() {
+		List<Transaction> sales = sales();
+		TransactionArchive heap = new TransactionArchive(sales, this::skuOf, false);
+		TransactionArchive direct = new TransactionArchive(heap, true);
+		TransactionArchive back = new TransactionArchive(direct, false);
+
+		int rows = heap.size();
+		long[] timestamps = new long[rows];
+		int[] numbers = new int[rows];
+		long[] skus = new long[rows];
+		int[] nights = new int[rows];
+		long[] prices = new long[rows];
+		for (int row = 0; row < rows; row++) {
+			timestamps[row] = direct.getTimestamp(row);
+			numbers[row] = direct.getTransactionNumber(row);
+			skus[row] = direct.getSku(row);
+			nights[row] = direct.getNights(row);
+			prices[row] = direct.getPrice(row);
+		}
+		TransactionArchive rebuilt = new TransactionArchive(timestamps, numbers, skus, nights, prices, true);
+
+		for (TransactionArchive copy : List.of(direct, back, rebuilt)) {
+			assertEquals(rows, copy.size());
+			assertEquals(sales.size(), copy.getTransactionCount());
+			List<Transaction> restored = new ArrayList<>();
+			copy.collect(Long.MIN_VALUE, Long.MAX_VALUE, games::get, restored);
+			assertSameSales(sales, restored);
+		}
+	}
+
+	@Test
+	void scansSkipSalesWithNoLinesAndTotalInCents() {
+		List<Transaction> sales = sales();
+		for (boolean offHeap : new boolean[] { false, true }) {
+			TransactionArchive archive = new TransactionArchive(sales, this::skuOf, offHeap);
+			long expected = 0;
+			int lines = 0;
+			for (Transaction sale : sales) {
+				expected += sale.getTotalCents();
+				lines += sale.getGamesList().size();
+			}
+			assertEquals(expected, archive.totalCents(Long.MIN_VALUE, Long.MAX_VALUE));
+			assertEquals(sales.get(1).getTotalCents(), archive.totalCents(START + 1000, START + 1001));
+
+			long[] visited = new long[2];
+			archive.forEachLine(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, number, sku, nights, price) -> {
+				visited[0]++;
+				visited[1] += price;
+			});
+			assertEquals(lines, visited[0]);
+			assertEquals(expected, visited[1]);
+		}
+	}
+}
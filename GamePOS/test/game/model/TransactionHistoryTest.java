@@ -0,0 +1,98 @@
+package game.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TransactionHistoryTest {
+	private static final long DAY = 20_000;
+	private static final long START = BusinessDay.startOf(DAY);
+
+	private static Transaction sale(int number, long timestamp) {
+		Transaction transaction = new Transaction(number, timestamp);
+		transaction.addGame(new Game("Halo", "X", 1), 1, 200);
+		return transaction;
+	}
+
+	private static List<Long> timestamps(List<Transaction> transactions) {
+		List<Long> result = new ArrayList<>();
+		for (Transaction transaction : transactions) {
+			result.add(transaction.getTimestamp());
+		}
+		return result;
+	}
+
+	@Test
+	void rangeIncludesItsStartAndExcludesItsEnd() {
+		TransactionHistory history = new TransactionHistory(new TitleRegistry(), false);
+		for (int i = 0; i < 5; i++) {
+			history.add(sale(i + 1, START + i * 1000));
+		}
+
+		assertEquals(List.of(START + 1000, START + 2000), timestamps(history.getRange(START + 1000, START + 3000)));
+		assertEquals(List.of(START + 1000), timestamps(history.getRange(START + 1000, START + 1001)));
+		assertEquals(List.of(START + 2000), timestamps(history.getRange(START + 1001, START + 2001)));
+	}
+
+	@Test
+	void emptyAndInvertedRangesReturnNothing() {
+		TransactionHistory history = new TransactionHistory(new TitleRegistry(), false);
+		history.add(sale(1, START + 1000));
+
+		assertTrue(history.getRange(START + 1000, START + 1000).isEmpty());
+		assertTrue(history.getRange(START + 2000, START + 1000).isEmpty());
+		assertTrue(history.getRange(START + 1001, START + 5000).isEmpty());
+		assertTrue(history.getRange(BusinessDay.startOf(DAY + 1), BusinessDay.startOf(DAY + 2)).isEmpty());
+		assertTrue(new TransactionHistory(new TitleRegistry(), false).getRange(Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+	}
+
+	@Test
+	void outOfOrderInsertsComeBackInTimestampOrder() {
+		TransactionHistory history = new TransactionHistory(new TitleRegistry(), false);
+		long[] order = { 5000, 1000, 3000, 3000, 0, 4000, 2000 };
+		for (int i = 0; i < order.length; i++) {
+			history.add(sale(i + 1, START + order[i]));
+		}
+
+		assertEquals(List.of(START, START + 1000, START + 2000, START + 3000, START + 3000, START + 4000, START + 5000),
+				timestamps(history.getDay(DAY)));
+		assertEquals(List.of(START + 2000, START + 3000, START + 3000),
+				timestamps(history.getRange(START + 1500, START + 4000)));
+		// Equal timestamps keep the order they were added in
+		List<Transaction> ties = history.getRange(START + 3000, START + 3001);
+		assertEquals(3, ties.get(0).getTransactionNumber());
+		assertEquals(4, ties.get(1).getTransactionNumber());
+	}
+
+	@Test
+	void rangeSpansLiveAndFrozenDays() {
+		TransactionHistory history = new TransactionHistory(new TitleRegistry(), false);
+		long nextDay = BusinessDay.startOf(DAY + 1);
+		history.add(sale(1, START));
+		history.add(sale(2, nextDay - 1));
+		history.add(sale(3, nextDay));
+		history.add(sale(4, nextDay + 1000));
+		assertEquals(2, history.compactBefore(DAY + 1));
+
+		assertEquals(List.of(nextDay - 1, nextDay), timestamps(history.getRange(nextDay - 1, nextDay + 1)));
+		assertEquals(List.of(START, nextDay - 1), timestamps(history.getRange(START, nextDay)));
+		assertEquals(4, history.getRange(START, nextDay + 1001).size());
+		assertEquals("Halo", history.getRange(START, START + 1).get(0).getGamesList().get(0).getTitle());
+	}
+
+	@Test
+	void outOfOrderInsertIntoFrozenDayKeepsOrder() {
+		TransactionHistory history = new TransactionHistory(new TitleRegistry(), false);
+		history.add(sale(1, START + 1000));
+		history.add(sale(2, START + 3000));
+		history.compactBefore(DAY + 1);
+		history.add(sale(3, START + 2000));
+
+		assertEquals(List.of(START + 1000, START + 2000, START + 3000), timestamps(history.getDay(DAY)));
+		assertEquals(3, history.size());
+	}
+}
@@ -0,0 +1,187 @@
+package game.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import game.model.DailySales;
+import game.model.Format;
+import game.model.Game;
+import game.model.Store;
+import game.model.Transaction;
+
+class StorePersistenceTest {
+	private static final String TITLE = "Persisted Game";
+	private static final int THREADS = 4;
+	private static final int SALES_PER_THREAD = 500;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void salesDuringASnapshotAreCountedOnceAfterRestart() throws Exception {
+		Store store = newStore();
+		StorePersistence persistence = open(store, dir);
+		long now = System.currentTimeMillis();
+
+		List<Thread> tills = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Thread till = new Thread(() -> {
+				for (int i = 0; i < SALES_PER_THREAD; i++) {
+					Transaction sale = new Transaction(0, now);
+					sale.addGame(store.getGame(TITLE, "P"), 1, 450);
+					store.addCompletedTransaction(sale);
+				}
+			});
+			tills.add(till);
+			till.start();
+		}
+		while (tills.stream().anyMatch(Thread::isAlive)) {
+			persistence.snapshot();
+		}
+		for (Thread till : tills) {
+			till.join();
+		}
+
+		// Restart from the files as they are, without the final snapshot close() would take
+		Path crashed = Files.createDirectory(dir.resolve("crashed"));
+		Files.copy(dir.resolve("snapshot.dat"), crashed.resolve("snapshot.dat"), StandardCopyOption.REPLACE_EXISTING);
+		Files.copy(dir.resolve("journal.dat"), crashed.resolve("journal.dat"), StandardCopyOption.REPLACE_EXISTING);
+		persistence.close();
+
+		Store restored = newStore();
+		open(restored, crashed).close();
+		int sales = THREADS * SALES_PER_THREAD;
+		DailySales day = restored.getTodaysSales();
+		assertEquals(sales, day.getGamesSold());
+		assertEquals(sales * 450L, day.getTotalSales());
+		assertEquals(sales, day.getSalesByFormat().getGamesSold(Format.PLAYSTATION));
+		assertEquals(sales * 450L, day.getSalesByFormat().getSales(Format.PLAYSTATION));
+		assertEquals(sales, restored.getTransactionHistory().size());
+	}
+
+	@Test
+	void snapshotKeepsTheWholeHistoryOnceTheJournalIsCompacted() throws Exception {
+		Store store = newStore();
+		StorePersistence persistence = open(store, dir);
+		long now = System.currentTimeMillis();
+		for (int day = 30; day >= 0; day--) {
+			Transaction sale = new Transaction(0, now - TimeUnit.DAYS.toMillis(day));
+			sale.addGame(store.getGame(TITLE, "P"), 1 + day % 3, 200 + day);
+			sale.addGame(store.getGame(TITLE, "P"), 1, 450);
+			store.addCompletedTransaction(sale);
+		}
+		persistence.snapshot(); // Compacts the journal and freezes the past days
+		List<Transaction> before = store.getTransactionHistory();
+		persistence.close(); // Writes the frozen days into the snapshot
+
+		Store restored = newStore();
+		open(restored, dir).close();
+		List<Transaction> after = restored.getTransactionHistory();
+		assertEquals(before.size(), after.size());
+		for (int i = 0; i < before.size(); i++) {
+			Transaction expected = before.get(i);
+			Transaction actual = after.get(i);
+			assertEquals(expected.getTransactionNumber(), actual.getTransactionNumber());
+			assertEquals(expected.getTimestamp(), actual.getTimestamp());
+			assertEquals(expected.getGamesList().size(), actual.getGamesList().size());
+			for (int line = 0; line < expected.getGamesList().size(); line++) {
+				assertEquals(expected.getGamesList().get(line).getTitle(), actual.getGamesList().get(line).getTitle());
+				assertEquals(expected.getNights(line), actual.getNights(line));
+				assertEquals(expected.getLinePrice(line), actual.getLinePrice(line));
+			}
+		}
+		long from = now - TimeUnit.DAYS.toMillis(20);
+		assertEquals(store.getTransactionHistory(from, now + 1).size(),
+				restored.getTransactionHistory(from, now + 1).size());
+	}
+
+	@Test
+	void copiesOutBeyondAShorterFileAreOwedAfterRestart() throws Exception {
+		Store store = storeWith("3,P," + TITLE + "\n");
+		StorePersistence persistence = open(store, dir);
+		Game game = store.getGame(TITLE, "P");
+		Transaction sale = new Transaction();
+		for (int i = 0; i < 3; i++) {
+			assertTrue(game.rentGame());
+			sale.addGame(game);
+		}
+		store.addCompletedTransaction(sale);
+		Path journalOnly = Files.createDirectory(dir.resolve("journal-only"));
+		Files.copy(dir.resolve("journal.dat"), journalOnly.resolve("journal.dat"));
+		persistence.close();
+
+		// Restarted from the snapshot, then from the journal alone
+		for (Path from : List.of(dir, journalOnly)) {
+			Store restored = storeWith("1,P," + TITLE + "\n");
+			StorePersistence reopened = open(restored, from);
+			Game copy = restored.getGame(TITLE, "P");
+			assertEquals(0, copy.getNumberOfCopies());
+			assertEquals(3, copy.getCopiesRentedOut());
+			for (int i = 0; i < 3; i++) {
+				restored.returnGame(TITLE, "P");
+			}
+			assertEquals(1, copy.getNumberOfCopies());
+			assertEquals(0, copy.getCopiesRentedOut());
+			reopened.close();
+		}
+	}
+
+	@Test
+	void salesOfADelistedGameKeepTheirRevenueAfterRestart() throws Exception {
+		Store store = storeWith("3,P," + TITLE + "\n2,X,Delisted Game\n");
+		StorePersistence persistence = open(store, dir);
+		Transaction sale = new Transaction();
+		sale.addGame(store.getGame(TITLE, "P"), 1, 450);
+		sale.addGame(store.getGame("Delisted Game", "X"), 2, 700);
+		store.addCompletedTransaction(sale);
+		Path journalOnly = Files.createDirectory(dir.resolve("journal-only"));
+		Files.copy(dir.resolve("journal.dat"), journalOnly.resolve("journal.dat"));
+		persistence.close();
+
+		for (Path from : List.of(dir, journalOnly)) {
+			Store restored = storeWith("3,P," + TITLE + "\n");
+			open(restored, from).close();
+			assertNull(restored.getGame("Delisted Game", "X"));
+			Transaction replayed = restored.getTransactionHistory().get(0);
+			assertEquals(2, replayed.getGamesList().size());
+			assertEquals("Delisted Game", replayed.getGamesList().get(1).getTitle());
+			assertEquals(1150, replayed.getTotalCents());
+			assertEquals(1150, restored.getTodaysSales().getTotalSales());
+			assertEquals(700, restored.getTodaysSales().getSalesByFormat().getSales(Format.XBOX));
+		}
+	}
+
+	private Store storeWith(String inventoryLines) throws IOException {
+		Path inventory = dir.resolve("inventory.txt");
+		Files.writeString(inventory, inventoryLines);
+		Store store = new Store();
+		store.loadInventoryFromFile(inventory.toString());
+		return store;
+	}
+
+	private Store newStore() throws IOException {
+		Path inventory = dir.resolve("inventory.txt");
+		if (!Files.exists(inventory)) {
+			Files.writeString(inventory, "100000,P," + TITLE + "\n");
+		}
+		Store store = new Store();
+		store.loadInventoryFromFile(inventory.toString());
+		return store;
+	}
+
+	private static StorePersistence open(Store store, Path dir) throws IOException {
+		return StorePersistence.open(store, dir.resolve("snapshot.dat"), dir.resolve("journal.dat"), 60);
+	}
+}
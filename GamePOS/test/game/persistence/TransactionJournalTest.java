@@ -0,0 +1,230 @@
+package game.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import game.model.Store;
+import game.model.Transaction;
+
+class TransactionJournalTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void failedWriteLeavesNoTornFrameBehind() throws Exception {
+		Path journalPath = dir.resolve("journal.dat");
+		Store store = newStore();
+		TransactionJournal journal = TransactionJournal.open(journalPath, store, 0);
+		journal.recordSale(sale(store, 1));
+
+		FailingChannel[] failing = new FailingChannel[1];
+		journal.wrapChannel(channel -> failing[0] = new FailingChannel(channel));
+		failing[0].failWrites = true;
+		assertThrows(UncheckedIOException.class, () -> journal.recordSale(sale(store, 2)));
+
+		failing[0].failWrites = false;
+		journal.recordSale(sale(store, 3));
+		journal.close();
+
+		List<Transaction> replayed = replay(journalPath);
+		assertEquals(2, replayed.size());
+		assertEquals(1, replayed.get(0).getTransactionNumber());
+		assertEquals(3, replayed.get(1).getTransactionNumber());
+	}
+
+	@Test
+	void journalRefusesRecordsWhenAFailedWriteCannotBeUndone() throws Exception {
+		Path journalPath = dir.resolve("journal.dat");
+		Store store = newStore();
+		TransactionJournal journal = TransactionJournal.open(journalPath, store, 0);
+		journal.recordSale(sale(store, 1));
+
+		FailingChannel[] failing = new FailingChannel[1];
+		journal.wrapChannel(channel -> failing[0] = new FailingChannel(channel));
+		failing[0].failWrites = true;
+		failing[0].failTruncate = true;
+		assertThrows(UncheckedIOException.class, () -> journal.recordSale(sale(store, 2)));
+
+		failing[0].failWrites = false;
+		failing[0].failTruncate = false;
+		assertThrows(UncheckedIOException.class, () -> journal.recordSale(sale(store, 3)));
+		journal.close();
+
+		List<Transaction> replayed = replay(journalPath);
+		assertEquals(1, replayed.size());
+		assertEquals(1, replayed.get(0).getTransactionNumber());
+	}
+
+	@Test
+	void recordsRacingCloseFailInsteadOfHanging() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			Store store = newStore();
+			TransactionJournal journal = TransactionJournal.open(dir.resolve("race-" + round + ".dat"), store, 0);
+			ExecutorService tills = Executors.newFixedThreadPool(4);
+			try {
+				List<Future<?>> done = new ArrayList<>();
+				for (int t = 0; t < 4; t++) {
+					done.add(tills.submit(() -> {
+						for (int number = 1; ; number++) {
+							try {
+								journal.recordSale(sale(store, number));
+							} catch (IllegalStateException | UncheckedIOException e) {
+								return; // Closed
+							}
+						}
+					}));
+				}
+				Thread.sleep(round % 5);
+				journal.close();
+				for (Future<?> till : done) {
+					till.get(10, TimeUnit.SECONDS);
+				}
+			} finally {
+				tills.shutdownNow();
+			}
+		}
+	}
+
+	private Store newStore() throws IOException {
+		Path inventory = dir.resolve("inventory.txt");
+		if (!Files.exists(inventory)) {
+			Files.writeString(inventory, "100,P,Journaled Game\n");
+		}
+		Store store = new Store();
+		store.loadInventoryFromFile(inventory.toString());
+		return store;
+	}
+
+	private static Transaction sale(Store store, int number) {
+		Transaction transaction = new Transaction(number, System.currentTimeMillis());
+		transaction.addGame(store.getGame("Journaled Game", "P"), 2, 450);
+		return transaction;
+	}
+
+	private List<Transaction> replay(Path journalPath) throws IOException {
+		Store store = newStore();
+		TransactionJournal.open(journalPath, store, 0).close();
+		return store.getTransactionHistory();
+	}
+
+	/**
+	 * Delegates to a real channel, but can write half a buffer and then fail, as a full
+	 * disk does, and can refuse to truncate.
+	 */
+	private static class FailingChannel extends FileChannel {
+		private final FileChannel delegate;
+		volatile boolean failWrites;
+		volatile boolean failTruncate;
+
+		FailingChannel(FileChannel delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			if (failWrites) {
+				ByteBuffer half = src.duplicate();
+				half.limit(half.position() + Math.max(1, half.remaining() / 2));
+				int written = delegate.write(half);
+				src.position(src.position() + written);
+				throw new IOException("Injected write failure");
+			}
+			return delegate.write(src);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			if (failWrites) {
+				write(srcs[offset]);
+			}
+			return delegate.write(srcs, offset, length);
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			if (failTruncate) {
+				throw new IOException("Injected truncate failure");
+			}
+			delegate.truncate(size);
+			return this;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			return delegate.read(dst);
+		}
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			return delegate.read(dsts, offset, length);
+		}
+		@Override
+		public long position() throws IOException {
+			return delegate.position();
+		}
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+		@Override
+		public long size() throws IOException {
+			return delegate.size();
+		}
+		@Override
+		public void force(boolean metaData) throws IOException {
+			delegate.force(metaData);
+		}
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return delegate.transferTo(position, count, target);
+		}
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			return delegate.transferFrom(src, position, count);
+		}
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			return delegate.read(dst, position);
+		}
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			return delegate.write(src, position);
+		}
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return delegate.map(mode, position, size);
+		}
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return delegate.lock(position, size, shared);
+		}
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return delegate.tryLock(position, size, shared);
+		}
+		@Override
+		protected void implCloseChannel() throws IOException {
+			delegate.close();
+		}
+	}
+}
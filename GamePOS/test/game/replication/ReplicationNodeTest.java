@@ -0,0 +1,202 @@
+package game.replication;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import game.model.Game;
+import game.model.Store;
+
+class ReplicationNodeTest {
+	private static final int TITLES = 20;
+	private static final long TIMEOUT_MILLIS = 20_000;
+
+	@TempDir
+	Path dir;
+	private final List<Store> stores = new ArrayList<>();
+	private final List<ReplicationNode> nodes = new ArrayList<>();
+
+	@AfterEach
+	void closeNodes() throws IOException {
+		for (ReplicationNode node : nodes) {
+			node.close();
+		}
+		for (Store store : stores) {
+			store.getReservations().close();
+		}
+	}
+
+	@Test
+	void chainOfStoresConvergesWhileSelling() throws Exception {
+		ReplicationNode a = node("A");
+		ReplicationNode b = node("B");
+		ReplicationNode c = node("C");
+		b.connect("localhost", a.listen(0));
+		c.connect("localhost", b.listen(0));
+
+		List<Thread> sellers = new ArrayList<>();
+		for (int s = 0; s < stores.size(); s++) {
+			Store store = stores.get(s);
+			long seed = s;
+			sellers.add(new Thread(() -> sell(store, 20_000, seed)));
+		}
+		sellers.forEach(Thread::start);
+		for (Thread seller : sellers) {
+			seller.join();
+		}
+
+		awaitConverged();
+		int changes = 3 * 20_000;
+		for (ReplicationNode node : nodes) {
+			await(() -> node.getLogSize() < changes / 10, node.getStoreId() + " keeps " + node.getLogSize() + " changes");
+		}
+	}
+
+	@Test
+	void lateJoinerCatchesUpFromFoldedCounts() throws Exception {
+		ReplicationNode a = node("A");
+		int port = a.listen(0);
+		sell(stores.get(0), 5_000, 1);
+		await(() -> a.getLogSize() == 0, "a store with no peers folds its changes");
+
+		ReplicationNode d = node("D");
+		d.connect("localhost", port);
+		sell(stores.get(0), 500, 2);
+		awaitConverged();
+	}
+
+	@Test
+	void gapAsksThePeerToResync() throws Exception {
+		ReplicationNode a = node("A");
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), a.listen(0))) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			assertEquals(0x47505232, in.readInt());
+			in.readUTF();
+			VersionVector.read(in);
+			out.writeInt(0x47505232);
+			out.writeUTF("fake");
+			new VersionVector().write(out);
+
+			// Change 1 went missing
+			sendBatch(out, new InventoryDelta("fake#1", 2, "Remote Game", "P", 3));
+			skipUntilResync(in);
+			sendBatch(out, new InventoryDelta("fake#1", 1, "Remote Game", "P", 4),
+					new InventoryDelta("fake#1", 2, "Remote Game", "P", 3));
+			await(() -> a.getRemoteCopies("fake", "Remote Game", "P") == 7, "the resent changes are applied");
+		}
+	}
+
+	private ReplicationNode node(String id) throws IOException {
+		Path inventory = dir.resolve(id + ".txt");
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < TITLES; i++) {
+			lines.append("50,P,Game ").append(i).append('\n');
+		}
+		Files.writeString(inventory, lines);
+		Store store = new Store();
+		store.loadInventoryFromFile(inventory.toString());
+		ReplicationNode node = new ReplicationNode(id, store);
+		stores.add(store);
+		nodes.add(node);
+		return node;
+	}
+
+	private static void sell(Store store, int operations, long seed) {
+		Random random = new Random(seed);
+		List<Game> games = store.getAllGames();
+		List<Game> out = new ArrayList<>();
+		for (int i = 0; i < operations; i++) {
+			if (!out.isEmpty() && random.nextBoolean()) {
+				out.remove(out.size() - 1).returnGame();
+			} else {
+				Game game = games.get(random.nextInt(games.size()));
+				if (game.rentGame()) {
+					out.add(game);
+				}
+			}
+		}
+	}
+
+	private void awaitConverged() throws InterruptedException {
+		await(() -> {
+			for (ReplicationNode node : nodes) {
+				for (int s = 0; s < nodes.size(); s++) {
+					ReplicationNode other = nodes.get(s);
+					if (other == node) {
+						continue;
+					}
+					for (Game game : stores.get(s).getAllGames()) {
+						if (node.getRemoteCopies(other.getStoreId(), game.getTitle(), game.getFormat()) != game.getNumberOfCopies()) {
+							return false;
+						}
+					}
+				}
+			}
+			return true;
+		}, "every store sees every other store's copies");
+	}
+
+	private static void await(BooleanSupplier condition, String description) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Timed out waiting until " + description);
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	private static void sendBatch(DataOutputStream out, InventoryDelta... deltas) throws IOException {
+		out.writeInt(deltas.length);
+		for (InventoryDelta delta : deltas) {
+			delta.write(out);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads the node's messages until it asks for a resync.
+	 */
+	private static void skipUntilResync(DataInputStream in) throws IOException {
+		while (true) {
+			int count = in.readInt();
+			if (count >= 0) {
+				for (int i = 0; i < count; i++) {
+					InventoryDelta.read(in);
+				}
+			} else if (count == -1 || count == -2) {
+				VersionVector.read(in);
+				if (count == -2) {
+					return;
+				}
+			} else if (count == -3) {
+				in.readUTF();
+				in.readLong();
+				for (int i = in.readInt(); i > 0; i--) {
+					in.readUTF();
+					in.readInt();
+				}
+			} else {
+				fail("Unexpected message " + count);
+			}
+		}
+	}
+}
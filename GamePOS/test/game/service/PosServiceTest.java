@@ -0,0 +1,31 @@
+package game.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import game.model.Store;
+import game.model.TransactionNumbers;
+
+class PosServiceTest {
+
+	@Test
+	void tillsAreCappedAndNumbersStayUnique() {
+		try (PosService service = new PosService(new Store(), 1)) {
+			TransactionNumbers.Terminal regular = service.terminalFor("regular");
+			Set<Integer> issued = new HashSet<>();
+			for (int i = 0; i < PosService.MAX_TERMINALS * 4; i++) {
+				assertTrue(issued.add(service.terminalFor("client-" + i).next()));
+				assertTrue(issued.add(service.terminalFor("regular").next()));
+				assertTrue(service.getTerminalCount() <= PosService.MAX_TERMINALS);
+			}
+			assertSame(regular, service.terminalFor("regular"));
+			assertEquals(PosService.MAX_TERMINALS, service.getTerminalCount());
+		}
+	}
+}